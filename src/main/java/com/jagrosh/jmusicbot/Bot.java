@@ -15,10 +15,9 @@
  */
 package com.jagrosh.jmusicbot;
 
-import java.util.concurrent.ScheduledExecutorService;
-
 import com.jagrosh.jmusicbot.audio.AudioHandler;
 import com.jagrosh.jmusicbot.gui.GUI;
+import com.jagrosh.jmusicbot.settings.SettingsManager;
 
 import java.util.Objects;
 import net.dv8tion.jda.api.JDA;
@@ -32,7 +31,8 @@ import net.dv8tion.jda.api.entities.Guild;
 public class Bot
 {
     private boolean shuttingDown = false;
-    private final ScheduledExecutorService executorService;
+    private final Scheduler scheduler;
+    private final TaskGroup connections;
     private static Bot bot;
 
     public static Bot getInstance(){
@@ -42,7 +42,8 @@ public class Bot
         return bot;
     }
     private Bot() {
-        this.executorService = ScheduledExecutorServiceProvider.getInstance();
+        this.scheduler = Scheduler.getInstance();
+        this.connections = scheduler.group("audio-connections", true);
     }
     
     public void closeAudioConnection(long guildId)
@@ -50,7 +51,7 @@ public class Bot
         JDA jda = JDAProvider.getInstance();
         Guild guild = jda.getGuildById(guildId);
         if(guild!=null)
-            executorService.submit(() -> guild.getAudioManager().closeAudioConnection());
+            connections.submit(() -> guild.getAudioManager().closeAudioConnection());
     }
     
     public void resetGame()
@@ -68,7 +69,10 @@ public class Bot
         if(shuttingDown)
             return;
         shuttingDown = true;
-        executorService.shutdownNow();
+        // its writes run on the scheduler, and must not be interrupted
+        if(SettingsManager.hasInstance())
+            SettingsManager.getInstance().shutdown();
+        scheduler.shutdownNow();
         if(jda.getStatus()!=JDA.Status.SHUTTING_DOWN)
         {
             jda.getGuilds().stream().forEach(g -> 
@@ -43,9 +43,9 @@ public class BotConfig {
             evalEngine;
 
     private HashMap<String, String> emojiMap;
-    private boolean stayInChannel, songInGame, npImages, updatealerts, useEval, dbots;
-    private long owner, maxSeconds, aloneTimeUntilStop;
-    private int maxYTPlaylistPages;
+    private boolean stayInChannel, songInGame, npImages, updatealerts, useEval, dbots, virtualThreads;
+    private long owner, maxSeconds, aloneTimeUntilStop, npTimeStep;
+    private int maxYTPlaylistPages, jitterBuffer, playlistConcurrency, playlistWindow, timerThreads, blockingThreads;
     private double skipratio;
     private OnlineStatus status;
     private Activity game;
@@ -125,6 +125,7 @@ public class BotConfig {
         stayInChannel = config.getBoolean("stayinchannel");
         songInGame = config.getBoolean("songinstatus");
         npImages = config.getBoolean("npimages");
+        npTimeStep = config.getLong("nptimestep");
         updatealerts = config.getBoolean("updatealerts");
         logLevel = config.getString("loglevel");
         useEval = config.getBoolean("eval");
@@ -139,6 +140,12 @@ public class BotConfig {
         aliases = config.getConfig("aliases");
         transforms = config.getConfig("transforms");
         skipratio = config.getDouble("skipratio");
+        jitterBuffer = config.getInt("jitterbuffer");
+        playlistConcurrency = config.getInt("playlistconcurrency");
+        playlistWindow = config.getInt("playlistwindow");
+        timerThreads = config.getInt("timerthreads");
+        blockingThreads = config.getInt("blockingthreads");
+        virtualThreads = config.getBoolean("virtualthreads");
         dbots = (owner == 113156185389092864L);
     }
 
@@ -313,6 +320,10 @@ public class BotConfig {
         return npImages;
     }
 
+    public long getNPTimeStep() {
+        return npTimeStep;
+    }
+
     public long getMaxSeconds() {
         return maxSeconds;
     }
@@ -329,6 +340,30 @@ public class BotConfig {
         return aloneTimeUntilStop;
     }
 
+    public int getJitterBuffer() {
+        return Math.max(jitterBuffer, 0);
+    }
+
+    public int getPlaylistConcurrency() {
+        return Math.max(playlistConcurrency, 1);
+    }
+
+    public int getPlaylistWindow() {
+        return Math.max(playlistWindow, 0);
+    }
+
+    public int getTimerThreads() {
+        return Math.max(timerThreads, 1);
+    }
+
+    public int getBlockingThreads() {
+        return Math.max(blockingThreads, 1);
+    }
+
+    public boolean useVirtualThreads() {
+        return virtualThreads;
+    }
+
     public boolean isTooLong(AudioTrack track) {
         if (maxSeconds <= 0)
             return false;
@@ -18,10 +18,10 @@ package com.jagrosh.jmusicbot;
 import com.jagrosh.jmusicbot.audio.AloneInVoiceHandler;
 import com.jagrosh.jmusicbot.audio.NowplayingHandler;
 import com.jagrosh.jmusicbot.audio.PlayerManager;
+import com.jagrosh.jmusicbot.audio.VoicePresence;
 import com.jagrosh.jmusicbot.settings.SettingsManager;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import net.dv8tion.jda.api.JDA;
@@ -29,8 +29,10 @@ import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.VoiceChannel;
 import net.dv8tion.jda.api.events.ReadyEvent;
+import net.dv8tion.jda.api.events.ReconnectedEvent;
 import net.dv8tion.jda.api.events.ShutdownEvent;
 import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.voice.GuildVoiceDeafenEvent;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageDeleteEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -53,7 +55,9 @@ public class Listener extends ListenerAdapter {
 
     private final PlayerManager playerManager;
 
-    private final ScheduledExecutorService executorService;
+    private final VoicePresence voicePresence;
+
+    private final TaskGroup updateChecks;
 
     private final Bot bot;
 
@@ -64,7 +68,8 @@ public class Listener extends ListenerAdapter {
         this.nowplayingHandler = NowplayingHandler.getInstance();
         this.aloneInVoiceHandler = AloneInVoiceHandler.getInstance();
         this.playerManager = PlayerManager.getInstance();
-        this.executorService = ScheduledExecutorServiceProvider.getInstance();
+        this.voicePresence = VoicePresence.getInstance();
+        this.updateChecks = Scheduler.getInstance().group("update-check", true);
     }
 
     @Override
@@ -98,7 +103,7 @@ public class Listener extends ListenerAdapter {
 
     private void scheduleUpdateAlerts() {
         if (config.useUpdateAlerts()) {
-            executorService.scheduleWithFixedDelay(() -> {
+            updateChecks.scheduleWithFixedDelay(() -> {
                 try {
                     User owner = JDAProvider.getInstance().retrieveUserById(config.getOwnerId()).complete();
                     String currentVersion = OtherUtil.getCurrentVersion();
@@ -120,7 +125,19 @@ public class Listener extends ListenerAdapter {
 
     @Override
     public void onGuildVoiceUpdate(@NotNull GuildVoiceUpdateEvent event) {
-        aloneInVoiceHandler.onVoiceUpdate(event);
+        voicePresence.onVoiceUpdate(event);
+        aloneInVoiceHandler.onVoiceUpdate(event.getEntity().getGuild());
+    }
+
+    @Override
+    public void onGuildVoiceDeafen(@NotNull GuildVoiceDeafenEvent event) {
+        voicePresence.onDeafen(event);
+        aloneInVoiceHandler.onVoiceUpdate(event.getGuild());
+    }
+
+    @Override
+    public void onReconnected(@NotNull ReconnectedEvent event) {
+        voicePresence.resync(event.getJDA());
     }
 
     @Override
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the bot's background tasks, in named groups. Tasks that only do a
+ * little work run on a small pool of timer threads. Tasks that wait on
+ * Discord or the network run on a separate pool, so one slow request can't
+ * hold up every timer in the bot. Each group keeps its own run times, which
+ * are shown by the debug command.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class Scheduler
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Scheduler");
+
+    private final ScheduledThreadPoolExecutor timers;
+    private final ExecutorService blocking;
+    private final Map<String, TaskGroup> groups = new ConcurrentHashMap<>();
+
+    private static Scheduler scheduler;
+
+    public static Scheduler getInstance(){
+        if(scheduler == null){
+            scheduler = new Scheduler();
+        }
+        return scheduler;
+    }
+
+    private Scheduler()
+    {
+        BotConfig config = BotConfig.getInstance();
+        this.timers = new ScheduledThreadPoolExecutor(Math.max(config.getTimerThreads(), 1), threads("timer"));
+        this.timers.setRemoveOnCancelPolicy(true);
+        this.blocking = createBlocking(Math.max(config.getBlockingThreads(), 1), config.useVirtualThreads());
+    }
+
+    /**
+     * Gets the group with the given name, creating it the first time
+     *
+     * @param name the name of the group, as shown by the debug command
+     * @param blocking true if its tasks wait on Discord or the network
+     * @return the group
+     */
+    public TaskGroup group(String name, boolean blocking)
+    {
+        return groups.computeIfAbsent(name, n -> new TaskGroup(n, timers, blocking ? this.blocking : timers));
+    }
+
+    /**
+     * @return every group, by name
+     */
+    public List<TaskGroup> getGroups()
+    {
+        List<TaskGroup> list = new ArrayList<>(groups.values());
+        list.sort(Comparator.comparing(TaskGroup::getName));
+        return list;
+    }
+
+    /**
+     * Stops every task, without waiting for running ones
+     */
+    public void shutdownNow()
+    {
+        timers.shutdownNow();
+        blocking.shutdownNow();
+    }
+
+    private static ExecutorService createBlocking(int size, boolean virtual)
+    {
+        if(virtual)
+        {
+            try
+            {
+                // only exists on Java 21 and newer, and this is built for older ones
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            }
+            catch(ReflectiveOperationException ex)
+            {
+                LOG.warn("Virtual threads need Java 21 or newer, using " + size + " blocking threads instead");
+            }
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threads("blocking"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ThreadFactory threads(String name)
+    {
+        AtomicInteger count = new AtomicInteger();
+        return r ->
+        {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
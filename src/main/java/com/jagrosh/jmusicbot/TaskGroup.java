@@ -0,0 +1,312 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A named kind of background task, and how its runs went. A run is late by
+ * the time between when it was due and when it started. A periodic run
+ * overruns when it lasts longer than its period; for blocking tasks, a run
+ * that is due while the last one is still going is skipped and counted as an
+ * overrun too. A task that throws is logged and keeps its schedule.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class TaskGroup
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Scheduler");
+
+    private final String name;
+    private final ScheduledExecutorService timers;
+    private final ExecutorService runner;
+    private final LongAdder runs = new LongAdder(), failures = new LongAdder(), overruns = new LongAdder();
+    private final LongAdder runNanos = new LongAdder(), lateNanos = new LongAdder();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    /**
+     * @param name the name of the group
+     * @param timers schedules the tasks
+     * @param runner runs the tasks; the timers themselves for tasks that don't block
+     */
+    public TaskGroup(String name, ScheduledExecutorService timers, ExecutorService runner)
+    {
+        this.name = name;
+        this.timers = timers;
+        this.runner = runner;
+    }
+
+    /**
+     * Runs a task once, as soon as possible
+     *
+     * @param task the task
+     * @return the pending run
+     */
+    public Future<?> submit(Runnable task)
+    {
+        long due = System.nanoTime();
+        return runner.submit(() -> run(task, due, Long.MAX_VALUE));
+    }
+
+    /**
+     * Runs a task once, after a delay. Cancelling it before then is cheap, so
+     * this also suits deadlines that are usually cancelled.
+     *
+     * @param task the task
+     * @param delay the delay before the run
+     * @param unit the unit of the delay
+     * @return the pending run, to cancel it
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        long due = System.nanoTime() + unit.toNanos(delay);
+        if(runner == timers)
+            return timers.schedule(() -> run(task, due, Long.MAX_VALUE), delay, unit);
+        Dispatched dispatched = new Dispatched(task, due);
+        dispatched.timer = timers.schedule(() -> runner.execute(dispatched), delay, unit);
+        return dispatched;
+    }
+
+    /**
+     * Runs a task over and over, waiting the given delay between the end of
+     * one run and the start of the next
+     *
+     * @param task the task
+     * @param initialDelay the delay before the first run
+     * @param delay the delay between runs
+     * @param unit the unit of both delays
+     * @return the schedule, to cancel it
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit)
+    {
+        long period = unit.toNanos(delay);
+        if(runner == timers)
+        {
+            AtomicLong due = new AtomicLong(System.nanoTime() + unit.toNanos(initialDelay));
+            return timers.scheduleWithFixedDelay(() ->
+            {
+                run(task, due.get(), period);
+                due.set(System.nanoTime() + period);
+            }, initialDelay, delay, unit);
+        }
+        AtomicBoolean running = new AtomicBoolean(false);
+        return timers.scheduleWithFixedDelay(() ->
+        {
+            if(!running.compareAndSet(false, true))
+            {
+                overruns.increment();
+                return;
+            }
+            long due = System.nanoTime();
+            try
+            {
+                runner.execute(() ->
+                {
+                    try
+                    {
+                        run(task, due, period);
+                    }
+                    finally
+                    {
+                        running.set(false);
+                    }
+                });
+            }
+            catch(RuntimeException ex)
+            {
+                // shutting down
+                running.set(false);
+            }
+        }, initialDelay, delay, unit);
+    }
+
+    private void run(Runnable task, long due, long period)
+    {
+        long start = System.nanoTime();
+        lateNanos.add(Math.max(start - due, 0));
+        try
+        {
+            task.run();
+        }
+        catch(RuntimeException ex)
+        {
+            failures.increment();
+            LOG.warn("Task in " + name + " failed", ex);
+        }
+        finally
+        {
+            long time = System.nanoTime() - start;
+            runs.increment();
+            runNanos.add(time);
+            maxRunNanos.accumulateAndGet(time, Math::max);
+            if(time > period)
+                overruns.increment();
+        }
+    }
+
+    /**
+     * A blocking run that the timers hand over to the runner. Cancelling it
+     * before the run has started cancels the timer, or skips the run if it
+     * was already handed over. A run that has started is never interrupted.
+     */
+    private class Dispatched implements ScheduledFuture<Object>, Runnable
+    {
+        private final Runnable task;
+        private final long due;
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private final CompletableFuture<Object> done = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timer;
+
+        private Dispatched(Runnable task, long due)
+        {
+            this.task = task;
+            this.due = due;
+        }
+
+        @Override
+        public void run()
+        {
+            if(!started.compareAndSet(false, true))
+                return;
+            try
+            {
+                TaskGroup.this.run(task, due, Long.MAX_VALUE);
+            }
+            finally
+            {
+                done.complete(null);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            if(!started.compareAndSet(false, true))
+                return false;
+            timer.cancel(false);
+            return done.cancel(false);
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return done.isCancelled();
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return done.isDone();
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException
+        {
+            return done.get();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+        {
+            return done.get(timeout, unit);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit)
+        {
+            return unit.convert(due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other)
+        {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public boolean isBlocking()
+    {
+        return runner != timers;
+    }
+
+    /**
+     * @return the number of finished runs
+     */
+    public long getRuns()
+    {
+        return runs.sum();
+    }
+
+    /**
+     * @return the number of runs that threw
+     */
+    public long getFailures()
+    {
+        return failures.sum();
+    }
+
+    /**
+     * @return the number of runs that lasted longer than their period, or were skipped for it
+     */
+    public long getOverruns()
+    {
+        return overruns.sum();
+    }
+
+    /**
+     * @return the average time a run took, in milliseconds
+     */
+    public double getAverageRunTime()
+    {
+        long count = runs.sum();
+        return count == 0 ? 0 : runNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * @return the longest time a run took, in milliseconds
+     */
+    public double getMaxRunTime()
+    {
+        return maxRunNanos.get() / 1e6;
+    }
+
+    /**
+     * @return the average time between when a run was due and when it started, in milliseconds
+     */
+    public double getAverageLateness()
+    {
+        long count = runs.sum();
+        return count == 0 ? 0 : lateNanos.sum() / 1e6 / count;
+    }
+}
@@ -18,32 +18,34 @@ package com.jagrosh.jmusicbot.audio;
 import com.jagrosh.jmusicbot.Bot;
 import com.jagrosh.jmusicbot.BotConfig;
 import com.jagrosh.jmusicbot.JDAProvider;
-import com.jagrosh.jmusicbot.ScheduledExecutorServiceProvider;
+import com.jagrosh.jmusicbot.Scheduler;
+import com.jagrosh.jmusicbot.TaskGroup;
 import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Stops playback in guilds where the bot was left alone for too long. Each
+ * guild the bot is alone in gets a deadline, which is cancelled when someone
+ * joins, so nothing runs while nobody is alone.
  *
  * @author Michaili K (mysteriouscursor+git@protonmail.com)
  */
 public class AloneInVoiceHandler
 {
-    private final HashMap<Long, Instant> aloneSince = new HashMap<>();
+    private final Map<Long, Deadline> deadlines = new ConcurrentHashMap<>();
     private long aloneTimeUntilStop = 0;
 
     private final BotConfig botConfig;
 
     private final PlayerManager playerManager;
 
-    private final ScheduledExecutorService executorService;
+    private final VoicePresence voicePresence;
+
+    private final TaskGroup timeouts;
     private static AloneInVoiceHandler aloneInVoiceHandler;
 
     public static AloneInVoiceHandler getInstance(){
@@ -57,62 +59,75 @@ public class AloneInVoiceHandler
     {
         this.botConfig = BotConfig.getInstance();
         this.playerManager = PlayerManager.getInstance();
-        this.executorService = ScheduledExecutorServiceProvider.getInstance();
+        this.voicePresence = VoicePresence.getInstance();
+        this.timeouts = Scheduler.getInstance().group("alone-in-voice", false);
         init();
     }
     
     public void init()
     {
         aloneTimeUntilStop = botConfig.getAloneTimeUntilStop();
-        if(aloneTimeUntilStop > 0)
-            executorService.scheduleWithFixedDelay(this::check, 0, 5, TimeUnit.SECONDS);
     }
     
-    private void check()
+    private void expire(long guildId)
     {
-        Set<Long> toRemove = new HashSet<>();
-        for(Map.Entry<Long, Instant> entrySet: aloneSince.entrySet())
-        {
-            if(entrySet.getValue().getEpochSecond() > Instant.now().getEpochSecond() - aloneTimeUntilStop) continue;
-
-            Guild guild = JDAProvider.getInstance().getGuildById(entrySet.getKey());
-
-            if(guild == null)
-            {
-                toRemove.add(entrySet.getKey());
-                continue;
-            }
-
-            ((AudioHandler) guild.getAudioManager().getSendingHandler()).stopAndClear();
-            guild.getAudioManager().closeAudioConnection();
-
-            toRemove.add(entrySet.getKey());
-        }
-        toRemove.forEach(aloneSince::remove);
+        Guild guild = JDAProvider.getInstance().getGuildById(guildId);
+        // someone may have joined just as the deadline ran out
+        if(guild == null || !isAlone(guild))
+            return;
+
+        AudioHandler handler = (AudioHandler) guild.getAudioManager().getSendingHandler();
+        if(handler != null)
+            handler.stopAndClear();
+        guild.getAudioManager().closeAudioConnection();
     }
 
-    public void onVoiceUpdate(GuildVoiceUpdateEvent event)
+    /**
+     * Called after someone in the guild joined, left, moved, or was deafened
+     * or undeafened
+     *
+     * @param guild the guild
+     */
+    public void onVoiceUpdate(Guild guild)
     {
         if(aloneTimeUntilStop <= 0) return;
 
-        Guild guild = event.getEntity().getGuild();
         if(!playerManager.hasHandler(guild)) return;
 
-        boolean alone = isAlone(guild);
-        boolean inList = aloneSince.containsKey(guild.getIdLong());
-
-        if(!alone && inList)
-            aloneSince.remove(guild.getIdLong());
-        else if(alone && !inList)
-            aloneSince.put(guild.getIdLong(), Instant.now());
+        long guildId = guild.getIdLong();
+        if(isAlone(guild))
+            deadlines.computeIfAbsent(guildId, id -> new Deadline(id));
+        else
+        {
+            Deadline deadline = deadlines.remove(guildId);
+            if(deadline != null)
+                deadline.future.cancel(false);
+        }
     }
 
     private boolean isAlone(Guild guild)
     {
         if(guild.getAudioManager().getConnectedChannel() == null) return false;
-        return guild.getAudioManager().getConnectedChannel().getMembers().stream()
-                .noneMatch(x ->
-                        !x.getVoiceState().isDeafened()
-                        && !x.getUser().isBot());
+        return voicePresence.getListeners(guild) == 0;
+    }
+
+    private class Deadline implements Runnable
+    {
+        private final long guildId;
+        private final ScheduledFuture<?> future;
+
+        private Deadline(long guildId)
+        {
+            this.guildId = guildId;
+            this.future = timeouts.schedule(this, aloneTimeUntilStop, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void run()
+        {
+            // only if it wasn't cancelled or replaced meanwhile
+            if(deadlines.remove(guildId, this))
+                expire(guildId);
+        }
     }
 }
@@ -22,25 +22,21 @@ import com.jagrosh.jmusicbot.playlist.PlaylistLoader.Playlist;
 import com.jagrosh.jmusicbot.queue.AbstractQueue;
 import com.jagrosh.jmusicbot.settings.QueueType;
 import com.jagrosh.jmusicbot.settings.SettingsManager;
-import com.jagrosh.jmusicbot.utils.TimeUtil;
 import com.jagrosh.jmusicbot.settings.RepeatMode;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.player.event.AudioEventAdapter;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
-import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 import com.jagrosh.jmusicbot.settings.Settings;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
 import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioTrack;
 import java.nio.ByteBuffer;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.MessageBuilder;
 import net.dv8tion.jda.api.audio.AudioSendHandler;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
@@ -48,6 +44,14 @@ import net.dv8tion.jda.api.entities.User;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Per-guild playback state. It is used concurrently by command handlers,
+ * lavaplayer's track threads and JDA's audio send thread, so nothing here
+ * holds a lock while calling into the {@link AudioPlayer}: lavaplayer fires
+ * {@link #onTrackEnd} while holding its own track lock, and waiting on the
+ * player from inside a lock of ours would invert that order. The queue has
+ * its own lock, and starting playback relies on
+ * {@link AudioPlayer#startTrack(AudioTrack, boolean)} to atomically only
+ * start a track when nothing else is playing.
  *
  * @author John Grosh <john.a.grosh@gmail.com>
  */
@@ -58,15 +62,15 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     public final static String STOP_EMOJI  = "\u23F9"; // ⏹
 
 
-    private final List<AudioTrack> defaultQueue = new LinkedList<>();
-    private final Set<String> votes = new HashSet<>();
+    private final DefaultQueue defaultQueue;
+    private volatile Playlist stream; // the default playlist being streamed into defaultQueue, if any
     
     private final PlayerManager manager;
     private final AudioPlayer audioPlayer;
     private final long guildId;
     
-    private AudioFrame lastFrame;
-    private AbstractQueue<QueuedTrack> queue;
+    private final JitterBuffer jitterBuffer;
+    private volatile AbstractQueue<QueuedTrack> queue;
 
     private final BotConfig botConfig;
 
@@ -78,9 +82,12 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
 
     private final NowplayingHandler nowplayingHandler;
 
+    private final VoicePresence voicePresence;
+
     protected AudioHandler(PlayerManager manager, Guild guild, AudioPlayer player)
     {
         this.manager = manager;
+        this.defaultQueue = new DefaultQueue(manager);
         this.audioPlayer = player;
         this.guildId = guild.getIdLong();
         this.botConfig = BotConfig.getInstance();
@@ -88,22 +95,28 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         this.playlistLoader = PlaylistLoader.getInstance();
         this.bot = Bot.getInstance();
         this.nowplayingHandler = NowplayingHandler.getInstance();
+        this.voicePresence = VoicePresence.getInstance();
+        this.jitterBuffer = new JitterBuffer(player, botConfig.getJitterBuffer() / 20);
 
         this.setQueueType(settingsManager.getSettings(guildId).getQueueType());
     }
 
     public void setQueueType(QueueType type)
     {
-        queue = type.createInstance(queue);
+        if(queue == null)
+            queue = type.createInstance(null);
+        else
+            // the new queue shares the old one's list, and with it the lock
+            synchronized(queue.getList())
+            {
+                queue = type.createInstance(queue);
+            }
     }
 
     public int addTrackToFront(QueuedTrack qtrack)
     {
-        if(audioPlayer.getPlayingTrack()==null)
-        {
-            audioPlayer.playTrack(qtrack.getTrack());
+        if(audioPlayer.startTrack(qtrack.getTrack(), true))
             return -1;
-        }
         else
         {
             queue.addAt(0, qtrack);
@@ -113,13 +126,30 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     
     public int addTrack(QueuedTrack qtrack)
     {
-        if(audioPlayer.getPlayingTrack()==null)
+        if(audioPlayer.startTrack(qtrack.getTrack(), true))
+            return -1;
+        else
+            return queue.add(qtrack);
+    }
+
+    /**
+     * Adds several tracks at once, starting playback with the first one if
+     * nothing is playing
+     * @param qtracks the tracks to add, in order
+     * @return -1 if playback was started, otherwise the queue position of the first track
+     */
+    public int addTracks(Collection<QueuedTrack> qtracks)
+    {
+        if(qtracks.isEmpty())
+            return queue.addAll(qtracks);
+        List<QueuedTrack> list = new ArrayList<>(qtracks);
+        if(audioPlayer.startTrack(list.get(0).getTrack(), true))
         {
-            audioPlayer.playTrack(qtrack.getTrack());
+            queue.addAll(list.subList(1, list.size()));
             return -1;
         }
         else
-            return queue.add(qtrack);
+            return queue.addAll(list);
     }
     
     public AbstractQueue<QueuedTrack> getQueue()
@@ -130,6 +160,7 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     public void stopAndClear()
     {
         queue.clear();
+        stream = null;
         defaultQueue.clear();
         audioPlayer.stopTrack();
     }
@@ -139,16 +170,27 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         return guild(jda).getSelfMember().getVoiceState().inVoiceChannel() && audioPlayer.getPlayingTrack()!=null;
     }
     
-    public Set<String> getVotes()
-    {
-        return votes;
-    }
-    
     public AudioPlayer getPlayer()
     {
         return audioPlayer;
     }
     
+    /**
+     * @return how often playback ran out of frames while a track was playing
+     */
+    public long getUnderruns()
+    {
+        return jitterBuffer.getUnderruns();
+    }
+
+    /**
+     * @return the number of frames that arrived after playback had run out
+     */
+    public long getLateFrames()
+    {
+        return jitterBuffer.getLateFrames();
+    }
+
     public RequestMetadata getRequestMetadata()
     {
         if(audioPlayer.getPlayingTrack() == null)
@@ -159,9 +201,19 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     
     public boolean playFromDefault()
     {
-        if(!defaultQueue.isEmpty())
+        AudioTrack next = defaultQueue.poll();
+        Playlist current = stream;
+        if(next != null)
+        {
+            audioPlayer.playTrack(next);
+            if(current != null)
+                current.fill(defaultQueue.size());
+            return true;
+        }
+        if(current != null && !current.isDone())
         {
-            audioPlayer.playTrack(defaultQueue.remove(0));
+            // the next track starts as soon as it is resolved
+            current.fill(0);
             return true;
         }
         Settings settings = settingsManager.getSettings(guildId);
@@ -171,16 +223,29 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         Playlist pl = playlistLoader.getPlaylist(settings.getDefaultPlaylist());
         if(pl==null || pl.getItems().isEmpty())
             return false;
-        pl.loadTracks(manager, (at) -> 
+        // without a window, everything is resolved up front, but still not kept twice
+        int window = botConfig.getPlaylistWindow() > 0 ? botConfig.getPlaylistWindow() : pl.getItems().size();
+        stream = pl;
+        pl.streamTracks(manager, window, (at) -> 
         {
-            if(audioPlayer.getPlayingTrack()==null)
-                audioPlayer.playTrack(at);
-            else
+            // a stop or a newer stream replaced this one
+            if(stream != pl)
+                return;
+            if(!audioPlayer.startTrack(at, true))
                 defaultQueue.add(at);
         }, () -> 
         {
-            if(pl.getTracks().isEmpty() && !botConfig.getStay())
-                bot.closeAudioConnection(guildId);
+            if(stream != pl)
+                return;
+            if(pl.getTrackCount() == 0)
+            {
+                stream = null;
+                if(!botConfig.getStay())
+                    bot.closeAudioConnection(guildId);
+            }
+            // the last items failed while waiting for them, so go around again
+            else if(audioPlayer.getPlayingTrack() == null && defaultQueue.isEmpty() && queue.isEmpty())
+                playFromDefault();
         });
         return true;
     }
@@ -189,6 +254,9 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     @Override
     public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason endReason) 
     {
+        // buffered frames of a track that was cut short shouldn't play after it
+        if(endReason != AudioTrackEndReason.FINISHED)
+            jitterBuffer.flush();
         RepeatMode repeatMode = settingsManager.getSettings(guildId).getRepeatMode();
         // if the track ended normally, and we're in repeat mode, re-add it to the queue
         if(endReason==AudioTrackEndReason.FINISHED && repeatMode != RepeatMode.OFF)
@@ -200,11 +268,13 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
                 queue.addAt(0, clone);
         }
         
-        if(queue.isEmpty())
+        QueuedTrack qt = pullNext();
+        if(qt == null)
         {
             if(!playFromDefault())
             {
                nowplayingHandler.onTrackUpdate(null);
+               nowplayingHandler.onPlayerUpdate(guildId);
                 if(!botConfig.getStay())
                    bot.closeAudioConnection(guildId);
                 // unpause, in the case when the player was paused and the track has been skipped.
@@ -213,9 +283,16 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
             }
         }
         else
-        {
-            QueuedTrack qt = queue.pull();
             player.playTrack(qt.getTrack());
+    }
+
+    // checking and pulling separately could race with a command emptying the queue
+    private QueuedTrack pullNext()
+    {
+        AbstractQueue<QueuedTrack> queue = this.queue;
+        synchronized(queue.getList())
+        {
+            return queue.isEmpty() ? null : queue.pull();
         }
     }
 
@@ -227,25 +304,56 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     @Override
     public void onTrackStart(AudioPlayer player, AudioTrack track) 
     {
-        votes.clear();
+        voicePresence.clearVotes(guildId);
         nowplayingHandler.onTrackUpdate(track);
+        nowplayingHandler.onPlayerUpdate(guildId);
+    }
+
+    @Override
+    public void onPlayerPause(AudioPlayer player)
+    {
+        nowplayingHandler.onPlayerUpdate(guildId);
+    }
+
+    @Override
+    public void onPlayerResume(AudioPlayer player)
+    {
+        nowplayingHandler.onPlayerUpdate(guildId);
     }
 
     public Message getNowPlaying(JDA jda) {
         if (!isMusicPlaying(jda)) {
             return null;
         }
+        return nowPlaying(guild(jda), audioPlayer.getPlayingTrack()).toMessage();
+    }
+
+    public Message getNoMusicPlaying(JDA jda)
+    {
+        return noMusicPlaying(guild(jda)).toMessage();
+    }
 
+    /**
+     * @param jda the JDA instance
+     * @return what the now playing message would show right now, playing or not
+     */
+    NowPlayingView getNowPlayingView(JDA jda)
+    {
         Guild guild = guild(jda);
         AudioTrack track = audioPlayer.getPlayingTrack();
+        if (track == null || !guild.getSelfMember().getVoiceState().inVoiceChannel()) {
+            return noMusicPlaying(guild);
+        }
+        return nowPlaying(guild, track);
+    }
 
-        MessageBuilder mb = new MessageBuilder();
-        mb.append(FormatUtil.filter(botConfig.getSuccess() + " **Now Playing in "
-                + guild.getSelfMember().getVoiceState().getChannel().getAsMention() + "...**"));
+    private NowPlayingView nowPlaying(Guild guild, AudioTrack track) {
+        String content = FormatUtil.filter(botConfig.getSuccess() + " **Now Playing in "
+                + guild.getSelfMember().getVoiceState().getChannel().getAsMention() + "...**");
 
         EmbedBuilder eb = createNowPlayingEmbed(guild, track);
 
-        return mb.setEmbeds(eb.build()).build();
+        return NowPlayingView.playing(content, eb.build(), audioPlayer.isPaused(), track.getPosition(), track.getDuration(), audioPlayer.getVolume());
     }
 
     private EmbedBuilder createNowPlayingEmbed(Guild guild, AudioTrack track) {
@@ -256,7 +364,6 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         setTrackTitle(eb, track);
         setTrackThumbnail(eb, track);
         setTrackFooter(eb, track);
-        setTrackProgress(eb, track);
 
         return eb;
     }
@@ -295,23 +402,13 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         }
     }
 
-    private void setTrackProgress(EmbedBuilder eb, AudioTrack track) {
-        double progress = (double) audioPlayer.getPlayingTrack().getPosition() / track.getDuration();
-        eb.setDescription(getStatusEmoji()
-                + " " + FormatUtil.progressBar(progress)
-                + " `[" + TimeUtil.formatTime(track.getPosition()) + "/" + TimeUtil.formatTime(track.getDuration()) + "]` "
-                + FormatUtil.volumeIcon(audioPlayer.getVolume()));
-    }
-    public Message getNoMusicPlaying(JDA jda)
+    private NowPlayingView noMusicPlaying(Guild guild)
     {
-        Guild guild = guild(jda);
-        return new MessageBuilder()
-                .setContent(FormatUtil.filter(botConfig.getSuccess()+" **Now Playing...**"))
-                .setEmbeds(new EmbedBuilder()
+        return NowPlayingView.stopped(FormatUtil.filter(botConfig.getSuccess()+" **Now Playing...**"),
+                new EmbedBuilder()
                 .setTitle("No music playing")
-                .setDescription(STOP_EMOJI+" "+FormatUtil.progressBar(-1)+" "+FormatUtil.volumeIcon(audioPlayer.getVolume()))
                 .setColor(guild.getSelfMember().getColor())
-                .build()).build();
+                .build(), audioPlayer.getVolume());
     }
 
     public String getStatusEmoji()
@@ -322,14 +419,13 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     @Override
     public boolean canProvide() 
     {
-        lastFrame = audioPlayer.provide();
-        return lastFrame != null;
+        return jitterBuffer.canProvide();
     }
 
     @Override
     public ByteBuffer provide20MsAudio() 
     {
-        return ByteBuffer.wrap(lastFrame.getData());
+        return jitterBuffer.provide20MsAudio();
     }
 
     @Override
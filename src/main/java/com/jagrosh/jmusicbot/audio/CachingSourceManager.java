@@ -0,0 +1,451 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.jagrosh.jmusicbot.utils.AppendLog;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A source manager that remembers what identifiers resolved to. It has to be
+ * registered before all others, and asks the sources added to it itself, so
+ * repeated lookups of the same URL or search don't go out to the network.
+ * Tracks are kept encoded and decoded again on every hit, so each load still
+ * gets its own track instances. Lookups without a match are remembered too,
+ * for a shorter time. Found items can also be kept in a {@link TrackStore},
+ * which is asked before the sources when an item isn't in memory. A stored
+ * track is used for as long as the store keeps it, and comes back into memory
+ * for a full time to live; a stored playlist or search result, which can
+ * change, is only used while it is younger than the time to live.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CachingSourceManager implements AudioSourceManager
+{
+    private final static Logger log = LoggerFactory.getLogger(CachingSourceManager.class);
+    private final static Entry NO_MATCHES = new Entry(null, null, -1, false);
+    private final static int OVERHEAD = 64; // rough size of an entry and its key besides the encoded tracks
+
+    private final List<AudioSourceManager> sources = new CopyOnWriteArrayList<>();
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // least recently used first
+    private final long maxSize, ttl, negativeTtl;
+    private final LongSupplier clock;
+    private final AtomicLong hits = new AtomicLong(), storeHits = new AtomicLong(), misses = new AtomicLong(), evictions = new AtomicLong();
+    private volatile TrackStore store;
+    private long size = 0;
+
+    /**
+     * @param maxSize the number of bytes the cache may hold, roughly
+     * @param ttl how long a found track or playlist is kept, in milliseconds
+     * @param negativeTtl how long a lookup without a match is kept, in milliseconds
+     */
+    public CachingSourceManager(long maxSize, long ttl, long negativeTtl)
+    {
+        this(maxSize, ttl, negativeTtl, System::currentTimeMillis);
+    }
+
+    CachingSourceManager(long maxSize, long ttl, long negativeTtl, LongSupplier clock)
+    {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a source to ask on a miss, after the ones added before it
+     *
+     * @param source the source
+     */
+    public void addSource(AudioSourceManager source)
+    {
+        sources.add(source);
+    }
+
+    /**
+     * Sets the store that found items are written to and read from when they
+     * aren't in memory
+     *
+     * @param store the store, or null for none
+     */
+    public void setStore(TrackStore store)
+    {
+        this.store = store;
+    }
+
+    @Override
+    public String getSourceName()
+    {
+        return "cache";
+    }
+
+    @Override
+    public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference)
+    {
+        if(reference.identifier == null)
+            return null;
+        Entry entry = get(reference.identifier);
+        if(entry != null)
+        {
+            AudioItem item = decode(manager, entry);
+            if(item != null)
+            {
+                hits.incrementAndGet();
+                return item;
+            }
+        }
+        entry = load(reference.identifier);
+        if(entry != null)
+        {
+            AudioItem item = decode(manager, entry);
+            if(item != null)
+            {
+                storeHits.incrementAndGet();
+                // playlists only for what is left of their time, so the store doesn't keep them fresh
+                put(reference.identifier, entry, entry.expires - clock.getAsLong());
+                return item;
+            }
+        }
+        misses.incrementAndGet();
+        for(AudioSourceManager source : sources)
+        {
+            AudioItem item = source.loadItem(manager, reference);
+            if(item == null)
+                continue;
+            if(item == AudioReference.NO_TRACK)
+                put(reference.identifier, NO_MATCHES, negativeTtl);
+            else if(item instanceof AudioTrack || item instanceof AudioPlaylist)
+            {
+                Entry encoded = encode(manager, item);
+                if(encoded != null)
+                {
+                    put(reference.identifier, encoded, ttl);
+                    save(reference.identifier, encoded);
+                }
+            }
+            // anything else redirects to another identifier, which gets cached on its own
+            return item;
+        }
+        put(reference.identifier, NO_MATCHES, negativeTtl);
+        return AudioReference.NO_TRACK;
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track)
+    {
+        return false;
+    }
+
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output) throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException
+    {
+        return null;
+    }
+
+    @Override
+    public void shutdown()
+    {
+        clear();
+        TrackStore current = store;
+        if(current != null)
+        {
+            try
+            {
+                current.close();
+            }
+            catch(IOException ex)
+            {
+                log.warn("Failed to close the track store", ex);
+            }
+        }
+    }
+
+    public void clear()
+    {
+        synchronized(entries)
+        {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups answered by the store, because they weren't in memory
+     */
+    public long getStoreHits()
+    {
+        return storeHits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    public int getEntries()
+    {
+        synchronized(entries)
+        {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the rough number of bytes held
+     */
+    public long getSize()
+    {
+        synchronized(entries)
+        {
+            return size;
+        }
+    }
+
+    private Entry get(String identifier)
+    {
+        synchronized(entries)
+        {
+            Entry entry = entries.get(identifier);
+            if(entry == null || entry.expires > clock.getAsLong())
+                return entry;
+            remove(identifier);
+            return null;
+        }
+    }
+
+    private void put(String identifier, Entry entry, long ttl)
+    {
+        if(ttl <= 0 || entry.size > maxSize)
+            return;
+        Entry timed = entry.until(clock.getAsLong() + ttl);
+        synchronized(entries)
+        {
+            remove(identifier);
+            entries.put(identifier, timed);
+            size += timed.size;
+            Iterator<Entry> it = entries.values().iterator();
+            while(size > maxSize && it.hasNext())
+            {
+                size -= it.next().size;
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void remove(String identifier)
+    {
+        Entry old = entries.remove(identifier);
+        if(old != null)
+            size -= old.size;
+    }
+
+    private Entry load(String identifier)
+    {
+        TrackStore current = store;
+        if(current == null)
+            return null;
+        try
+        {
+            AppendLog.Stored stored = current.getStored(identifier);
+            if(stored == null)
+                return null;
+            Entry entry = Entry.read(stored.getData());
+            long now = clock.getAsLong();
+            if(entry.playlist == null)
+                return entry.until(now + ttl);
+            if(stored.getWritten() + ttl <= now)
+                return null;
+            return entry.until(stored.getWritten() + ttl);
+        }
+        catch(IOException ex)
+        {
+            log.warn("Failed to read '" + identifier + "' from the track store", ex);
+            return null;
+        }
+    }
+
+    private void save(String identifier, Entry entry)
+    {
+        TrackStore current = store;
+        if(current == null)
+            return;
+        try
+        {
+            current.put(identifier, entry.write());
+        }
+        catch(IOException ex)
+        {
+            log.warn("Failed to write '" + identifier + "' to the track store", ex);
+        }
+    }
+
+    private static Entry encode(AudioPlayerManager manager, AudioItem item)
+    {
+        try
+        {
+            if(item instanceof AudioTrack)
+                return new Entry(new byte[][]{TrackCodec.encode(manager, (AudioTrack) item)}, null, -1, false);
+            AudioPlaylist playlist = (AudioPlaylist) item;
+            List<AudioTrack> tracks = playlist.getTracks();
+            byte[][] encoded = new byte[tracks.size()][];
+            for(int i = 0; i < encoded.length; i++)
+                encoded[i] = TrackCodec.encode(manager, tracks.get(i));
+            int selected = playlist.getSelectedTrack() == null ? -1 : tracks.indexOf(playlist.getSelectedTrack());
+            return new Entry(encoded, playlist.getName() == null ? "" : playlist.getName(), selected, playlist.isSearchResult());
+        }
+        catch(Exception ex)
+        {
+            // not every source can encode its tracks, those just aren't cached
+            log.debug("Could not cache " + item, ex);
+            return null;
+        }
+    }
+
+    private static AudioItem decode(AudioPlayerManager manager, Entry entry)
+    {
+        if(entry.tracks == null)
+            return AudioReference.NO_TRACK;
+        try
+        {
+            List<AudioTrack> tracks = new ArrayList<>(entry.tracks.length);
+            for(byte[] encoded : entry.tracks)
+            {
+                AudioTrack track = TrackCodec.decode(manager, encoded);
+                if(track == null)
+                    return null;
+                tracks.add(track);
+            }
+            if(entry.playlist == null)
+                return tracks.get(0);
+            return new BasicAudioPlaylist(entry.playlist, tracks, entry.selected < 0 ? null : tracks.get(entry.selected), entry.search);
+        }
+        catch(Exception ex)
+        {
+            log.debug("Could not decode a cached item", ex);
+            return null;
+        }
+    }
+
+    private static class Entry
+    {
+        private final byte[][] tracks; // null for no matches
+        private final String playlist; // null for a single track
+        private final int selected;
+        private final boolean search;
+        private final long size;
+        private final long expires;
+
+        private Entry(byte[][] tracks, String playlist, int selected, boolean search)
+        {
+            this(tracks, playlist, selected, search, 0);
+        }
+
+        private Entry(byte[][] tracks, String playlist, int selected, boolean search, long expires)
+        {
+            this.tracks = tracks;
+            this.playlist = playlist;
+            this.selected = selected;
+            this.search = search;
+            this.expires = expires;
+            long bytes = OVERHEAD;
+            if(tracks != null)
+                for(byte[] track : tracks)
+                    bytes += track.length;
+            this.size = bytes;
+        }
+
+        private Entry until(long expires)
+        {
+            return new Entry(tracks, playlist, selected, search, expires);
+        }
+
+        private byte[] write() throws IOException
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeBoolean(playlist != null);
+            if(playlist != null)
+            {
+                out.writeUTF(playlist);
+                out.writeInt(selected);
+                out.writeBoolean(search);
+            }
+            out.writeInt(tracks.length);
+            for(byte[] track : tracks)
+            {
+                out.writeInt(track.length);
+                out.write(track);
+            }
+            return bytes.toByteArray();
+        }
+
+        private static Entry read(byte[] data) throws IOException
+        {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            boolean isPlaylist = in.readBoolean();
+            String playlist = isPlaylist ? in.readUTF() : null;
+            int selected = isPlaylist ? in.readInt() : -1;
+            boolean search = isPlaylist && in.readBoolean();
+            byte[][] tracks = new byte[in.readInt()][];
+            for(int i = 0; i < tracks.length; i++)
+            {
+                tracks[i] = new byte[in.readInt()];
+                in.readFully(tracks[i]);
+            }
+            return new Entry(tracks, playlist, selected, search);
+        }
+    }
+}
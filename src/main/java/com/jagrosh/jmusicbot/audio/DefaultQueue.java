@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The default playlist's tracks that are waiting to be played. They are kept
+ * encoded, which is a few hundred bytes each instead of a track with all its
+ * source state, and only turned back into a track when it is their turn. A
+ * track that can't be encoded is kept as it is.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class DefaultQueue
+{
+    private final static Logger log = LoggerFactory.getLogger(DefaultQueue.class);
+
+    private final AudioPlayerManager manager;
+    private final Queue<Object> entries = new ConcurrentLinkedQueue<>(); // byte[] or AudioTrack
+    private final AtomicInteger size = new AtomicInteger();
+
+    DefaultQueue(AudioPlayerManager manager)
+    {
+        this.manager = manager;
+    }
+
+    void add(AudioTrack track)
+    {
+        Object entry;
+        try
+        {
+            entry = TrackCodec.encode(manager, track);
+        }
+        catch(Exception ex)
+        {
+            entry = track;
+        }
+        entries.add(entry);
+        size.incrementAndGet();
+    }
+
+    /**
+     * @return the next track, or null if there is none
+     */
+    AudioTrack poll()
+    {
+        Object entry;
+        while((entry = entries.poll()) != null)
+        {
+            size.decrementAndGet();
+            if(entry instanceof AudioTrack)
+                return (AudioTrack) entry;
+            try
+            {
+                AudioTrack track = TrackCodec.decode(manager, (byte[]) entry);
+                if(track != null)
+                {
+                    track.setUserData(0L);
+                    return track;
+                }
+            }
+            catch(IOException ex)
+            {
+                log.warn("Failed to decode a default playlist track", ex);
+            }
+        }
+        return null;
+    }
+
+    int size()
+    {
+        return Math.max(size.get(), 0);
+    }
+
+    boolean isEmpty()
+    {
+        return entries.isEmpty();
+    }
+
+    void clear()
+    {
+        while(entries.poll() != null)
+            size.decrementAndGet();
+    }
+}
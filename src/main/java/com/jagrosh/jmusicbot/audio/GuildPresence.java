@@ -0,0 +1,141 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Who is listening in the voice channel the bot is in, for one guild. A
+ * listener is a member of that channel who is neither a bot nor deafened.
+ * It only knows ids and flags, and is kept up to date one voice event at a
+ * time, so none of the counts need a walk over the channel.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class GuildPresence
+{
+    private long channelId = 0;
+    private final Set<Long> listeners = new HashSet<>();
+    private final Set<Long> votes = new HashSet<>();
+    // votes from users who are listening right now
+    private int listeningVotes = 0;
+
+    /**
+     * @return the channel the bot is in, or 0 if none
+     */
+    synchronized long getChannel()
+    {
+        return channelId;
+    }
+
+    /**
+     * Starts over in a new channel. The votes stay, since they are for the
+     * track rather than the channel.
+     *
+     * @param channelId the channel the bot is now in, or 0 if none
+     * @param listening the users listening in it
+     */
+    synchronized void reset(long channelId, Iterable<Long> listening)
+    {
+        this.channelId = channelId;
+        listeners.clear();
+        listeningVotes = 0;
+        for(long userId : listening)
+            add(userId);
+    }
+
+    /**
+     * A user, other than the bot, joined, left or moved between channels
+     *
+     * @param userId the user
+     * @param listening whether the user is neither a bot nor deafened
+     * @param left the channel the user left, or 0 if none
+     * @param joined the channel the user joined, or 0 if none
+     */
+    synchronized void moved(long userId, boolean listening, long left, long joined)
+    {
+        if(channelId == 0)
+            return;
+        if(left == channelId)
+            remove(userId);
+        if(joined == channelId && listening)
+            add(userId);
+    }
+
+    /**
+     * A user, other than the bot, was deafened or undeafened
+     *
+     * @param userId the user
+     * @param listening whether the user is neither a bot nor deafened now
+     * @param in the channel the user is in
+     */
+    synchronized void deafened(long userId, boolean listening, long in)
+    {
+        if(channelId == 0 || in != channelId)
+            return;
+        if(listening)
+            add(userId);
+        else
+            remove(userId);
+    }
+
+    /**
+     * Adds a vote to skip the current track
+     *
+     * @param userId the user voting
+     * @return false if the user already voted
+     */
+    synchronized boolean vote(long userId)
+    {
+        if(!votes.add(userId))
+            return false;
+        if(listeners.contains(userId))
+            listeningVotes++;
+        return true;
+    }
+
+    synchronized void clearVotes()
+    {
+        votes.clear();
+        listeningVotes = 0;
+    }
+
+    synchronized int getListeners()
+    {
+        return listeners.size();
+    }
+
+    /**
+     * @return the votes from users who are listening right now
+     */
+    synchronized int getVotes()
+    {
+        return listeningVotes;
+    }
+
+    private void add(long userId)
+    {
+        if(listeners.add(userId) && votes.contains(userId))
+            listeningVotes++;
+    }
+
+    private void remove(long userId)
+    {
+        if(listeners.remove(userId) && votes.contains(userId))
+            listeningVotes--;
+    }
+}
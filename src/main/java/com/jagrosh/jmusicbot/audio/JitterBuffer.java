@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.format.StandardAudioDataFormats;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed ring of reusable frames between the player and the audio send
+ * thread. Every tick it takes whatever frames the player has ready, up to its
+ * depth. After running dry it waits until it is full again before sending, so
+ * a slow decoder causes one short gap instead of constant stutter.
+ *
+ * With a depth of 1 it just passes frames through. Everything but
+ * {@link #flush()} and the counters must only be used by the audio send thread.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class JitterBuffer
+{
+    private final AudioPlayer player;
+    private final ByteBuffer[] buffers;
+    private final MutableAudioFrame[] frames;
+    private int head = 0, count = 0;
+    private boolean filling = true; // holding frames back until the buffer is full
+    private boolean starved = false; // ran dry while something was playing, and isn't full again yet
+    private volatile boolean flush = false;
+    private volatile long underruns = 0, lateFrames = 0;
+
+    JitterBuffer(AudioPlayer player, int depth)
+    {
+        this.player = player;
+        this.buffers = new ByteBuffer[Math.max(depth, 1)];
+        this.frames = new MutableAudioFrame[buffers.length];
+        for(int i = 0; i < buffers.length; i++)
+        {
+            buffers[i] = ByteBuffer.allocateDirect(StandardAudioDataFormats.DISCORD_OPUS.maximumChunkSize());
+            frames[i] = new MutableAudioFrame();
+            frames[i].setBuffer(buffers[i]);
+        }
+    }
+
+    boolean canProvide()
+    {
+        if(flush)
+        {
+            flush = false;
+            count = 0;
+            filling = true;
+            starved = false;
+        }
+        while(count < buffers.length)
+        {
+            int slot = (head + count) % buffers.length;
+            ((Buffer) buffers[slot]).clear();
+            if(!player.provide(frames[slot]))
+                break;
+            count++;
+            if(starved)
+                lateFrames++;
+        }
+        boolean playing = player.getPlayingTrack() != null && !player.isPaused();
+        if(count == 0)
+        {
+            if(playing && !filling)
+            {
+                underruns++;
+                starved = true;
+            }
+            filling = true;
+            return false;
+        }
+        // keep waiting for a full buffer, unless the player has nothing more to give
+        if(filling && count < buffers.length && playing)
+            return false;
+        filling = false;
+        starved = false;
+        return true;
+    }
+
+    ByteBuffer provide20MsAudio()
+    {
+        ByteBuffer buffer = buffers[head];
+        head = (head + 1) % buffers.length;
+        count--;
+        // the player wrote the frame into the buffer, so flip it for reading
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    /**
+     * Drops the buffered frames before the next one is sent, for when they
+     * belong to a track that was skipped or stopped
+     */
+    void flush()
+    {
+        flush = true;
+    }
+
+    int getDepth()
+    {
+        return buffers.length;
+    }
+
+    /**
+     * @return how often the buffer ran dry while a track was playing
+     */
+    long getUnderruns()
+    {
+        return underruns;
+    }
+
+    /**
+     * @return the number of frames that arrived after the buffer had run dry
+     */
+    long getLateFrames()
+    {
+        return lateFrames;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.jagrosh.jmusicbot.utils.FormatUtil;
+import com.jagrosh.jmusicbot.utils.TimeUtil;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.MessageBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+
+/**
+ * What a now playing message shows, before it is turned into a message, so
+ * two of them can be compared. The elapsed time is shown, but only counts as
+ * a change once it moves on by a whole time step: it ticks every second, and
+ * editing for every tick would mean an edit per guild every second. Since
+ * everything else only changes when the player does, the view can also tell
+ * when it will next look different by itself.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class NowPlayingView
+{
+    private final String content;
+    private final MessageEmbed frame; // everything but the description
+    private final boolean playing, paused;
+    private final long position, duration;
+    private final int volume;
+
+    private NowPlayingView(String content, MessageEmbed frame, boolean playing, boolean paused, long position, long duration, int volume)
+    {
+        this.content = content;
+        this.frame = frame;
+        this.playing = playing;
+        this.paused = paused;
+        this.position = position;
+        this.duration = duration;
+        this.volume = volume;
+    }
+
+    static NowPlayingView playing(String content, MessageEmbed frame, boolean paused, long position, long duration, int volume)
+    {
+        return new NowPlayingView(content, frame, true, paused, position, duration, volume);
+    }
+
+    static NowPlayingView stopped(String content, MessageEmbed frame, int volume)
+    {
+        return new NowPlayingView(content, frame, false, false, 0, 0, volume);
+    }
+
+    Message toMessage()
+    {
+        String status = !playing ? AudioHandler.STOP_EMOJI : paused ? AudioHandler.PAUSE_EMOJI : AudioHandler.PLAY_EMOJI;
+        String description = status + " " + FormatUtil.progressBar(getProgress())
+                + (playing ? " `[" + TimeUtil.formatTime(position) + "/" + TimeUtil.formatTime(duration) + "]`" : "")
+                + " " + FormatUtil.volumeIcon(volume);
+        return new MessageBuilder()
+                .setContent(content)
+                .setEmbeds(new EmbedBuilder(frame).setDescription(description).build())
+                .build();
+    }
+
+    /**
+     * @param other the view that is showing, or null if that isn't known
+     * @param timeStep how far the elapsed time has to move on to count, in
+     *                 milliseconds; 0 if it never counts by itself
+     * @return true if this would look the same as the other
+     */
+    boolean looksLike(NowPlayingView other, long timeStep)
+    {
+        return other != null
+                && playing == other.playing
+                && paused == other.paused
+                && duration == other.duration
+                && FormatUtil.progressCell(getProgress()) == FormatUtil.progressCell(other.getProgress())
+                && (timeStep <= 0 || position / timeStep == other.position / timeStep)
+                && FormatUtil.volumeIcon(volume).equals(FormatUtil.volumeIcon(other.volume))
+                && content.equals(other.content)
+                && frame.equals(other.frame);
+    }
+
+    /**
+     * @param timeStep as for {@link #looksLike}
+     * @return how long until this would look different, in milliseconds,
+     *         if nothing but the playback moves on; Long.MAX_VALUE if never
+     */
+    long untilChange(long timeStep)
+    {
+        if(!playing || paused)
+            return Long.MAX_VALUE;
+        long next = Long.MAX_VALUE;
+        int cell = FormatUtil.progressCell(getProgress());
+        if(duration > 0 && duration != Long.MAX_VALUE && cell + 1 < FormatUtil.PROGRESS_CELLS)
+        {
+            long at = (long) Math.ceil((double) (cell + 1) * duration / FormatUtil.PROGRESS_CELLS);
+            // rounding could land a hair short of the next cell
+            while(FormatUtil.progressCell((double) at / duration) <= cell)
+                at++;
+            next = at;
+        }
+        if(timeStep > 0)
+            next = Math.min(next, (position / timeStep + 1) * timeStep);
+        return next == Long.MAX_VALUE ? next : next - position;
+    }
+
+    private double getProgress()
+    {
+        return playing ? (double) position / duration : -1;
+    }
+}
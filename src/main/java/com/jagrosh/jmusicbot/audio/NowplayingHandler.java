@@ -18,14 +18,15 @@ package com.jagrosh.jmusicbot.audio;
 import com.jagrosh.jmusicbot.Bot;
 import com.jagrosh.jmusicbot.BotConfig;
 import com.jagrosh.jmusicbot.JDAProvider;
-import com.jagrosh.jmusicbot.ScheduledExecutorServiceProvider;
-import com.jagrosh.jmusicbot.entities.Pair;
+import com.jagrosh.jmusicbot.Scheduler;
+import com.jagrosh.jmusicbot.TaskGroup;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Activity;
@@ -34,17 +35,38 @@ import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.TextChannel;
 
 /**
+ * Keeps the last now playing message of each guild up to date. Each message
+ * is looked at again exactly when it would next look different: when the
+ * progress bar reaches its next cell, or the elapsed time its next step. A
+ * 3 minute track gets an edit every 15 seconds, a 2 hour mix one every 10
+ * minutes, and paused and stopped guilds none. Changes playback doesn't
+ * predict, like pausing or a new track, are passed on as they happen.
+ * Edits keep to a budget across all guilds; those over it wait their turn.
  *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class NowplayingHandler
 {
+    private final static long MIN_EDIT_INTERVAL = TimeUnit.SECONDS.toNanos(5); // between edits of the same message
+    private final static long MAX_DELAY = TimeUnit.MINUTES.toMillis(1); // for changes nothing tells us about
+    // well under Discord's global limit, which commands and playback also draw on
+    private final static long EDIT_SPACING = TimeUnit.SECONDS.toNanos(1) / 10;
+    private final static long EDIT_BURST = 10 * EDIT_SPACING; // how far ahead of even spacing edits may run
+    private final static long NOT_RESERVED = Long.MIN_VALUE;
+
     private final Bot bot;
-    private final HashMap<Long,Pair<Long,Long>> lastNP; // guild -> channel,message
+    private final Map<Long, Tracked> lastNP = new ConcurrentHashMap<>();
 
     private final BotConfig botConfig;
 
-    private final ScheduledExecutorService executorService;
+    private final TaskGroup updates;
+
+    private boolean updating;
+    private long timeStep;
+    private long nextEdit = System.nanoTime(); // when the next edit is due if they were evenly spaced
+
+    private final LongAdder sent = new LongAdder(), unchanged = new LongAdder(), deferred = new LongAdder();
+    private volatile long sentPerMinute = 0, unchangedPerMinute = 0, deferredPerMinute = 0;
 
     private static NowplayingHandler nowplayingHandler;
 
@@ -57,76 +79,155 @@ public class NowplayingHandler
     private NowplayingHandler()
     {
         this.bot = Bot.getInstance();
-        this.lastNP = new HashMap<>();
         this.botConfig = BotConfig.getInstance();
-        this.executorService = ScheduledExecutorServiceProvider.getInstance();
+        this.updates = Scheduler.getInstance().group("nowplaying", false);
         init();
     }
     
     public void init()
     {
-        if(!botConfig.useNPImages())
-            executorService.scheduleWithFixedDelay(this::updateAll, 0, 5, TimeUnit.SECONDS);
+        updating = !botConfig.useNPImages();
+        timeStep = TimeUnit.SECONDS.toMillis(Math.max(botConfig.getNPTimeStep(), 0));
+        if(updating)
+            updates.scheduleWithFixedDelay(this::countMinute, 1, 1, TimeUnit.MINUTES);
     }
     
     public void setLastNPMessage(Message m)
     {
-        lastNP.put(m.getGuild().getIdLong(), new Pair<>(m.getTextChannel().getIdLong(), m.getIdLong()));
+        if(!updating)
+            return;
+        AudioHandler handler = (AudioHandler) m.getGuild().getAudioManager().getSendingHandler();
+        // it was just rendered, so it shows what the handler would show now
+        NowPlayingView shown = handler == null ? null : handler.getNowPlayingView(m.getJDA());
+        Tracked tracked = new Tracked(m.getGuild().getIdLong(), m.getTextChannel().getIdLong(), m.getIdLong(), shown);
+        Tracked old = lastNP.put(tracked.guildId, tracked);
+        if(old != null)
+            old.cancel();
+        tracked.schedule(shown == null ? 0 : Math.min(shown.untilChange(timeStep), MAX_DELAY));
     }
     
     public void clearLastNPMessage(Guild guild)
     {
-        lastNP.remove(guild.getIdLong());
+        Tracked tracked = lastNP.remove(guild.getIdLong());
+        if(tracked != null)
+            tracked.cancel();
+    }
+
+    /**
+     * Looks at the now playing message of a guild right away, for a change
+     * that didn't come from playback moving on
+     *
+     * @param guildId the guild
+     */
+    public void onPlayerUpdate(long guildId)
+    {
+        Tracked tracked = lastNP.get(guildId);
+        if(tracked != null)
+            tracked.schedule(0);
     }
 
-    private void updateAll() {
-        Set<Long> toRemove = new HashSet<>();
+    private void update(Tracked tracked)
+    {
+        if(lastNP.get(tracked.guildId) != tracked)
+            return;
         JDA jda = JDAProvider.getInstance();
+        Guild guild = jda.getGuildById(tracked.guildId);
+        TextChannel tc = guild == null ? null : guild.getTextChannelById(tracked.channelId);
+        AudioHandler handler = guild == null ? null : (AudioHandler) guild.getAudioManager().getSendingHandler();
+        if(tc == null || handler == null)
+        {
+            remove(tracked);
+            return;
+        }
 
-        for (long guildId : lastNP.keySet()) {
-            if (!processGuildUpdate(jda, guildId, toRemove)) {
-                toRemove.add(guildId);
-            }
+        NowPlayingView view = handler.getNowPlayingView(jda);
+        if(view.looksLike(tracked.shown, timeStep))
+        {
+            unchanged.increment();
+            tracked.reservedAt = NOT_RESERVED;
+            tracked.schedule(Math.min(view.untilChange(timeStep), MAX_DELAY));
+            return;
         }
 
-        removeInvalidGuilds(toRemove);
+        long now = System.nanoTime();
+        if(tracked.reservedAt == NOT_RESERVED)
+        {
+            long at = reserveEdit(Math.max(now, tracked.lastEdit + MIN_EDIT_INTERVAL));
+            if(at - now > 0)
+            {
+                // the slot is kept, so it goes out then whatever else comes up
+                deferred.increment();
+                tracked.reservedAt = at;
+                tracked.schedule(TimeUnit.NANOSECONDS.toMillis(at - now) + 1);
+                return;
+            }
+        }
+        else if(tracked.reservedAt - now > 0)
+        {
+            // something else came up before the slot, it goes out with it
+            tracked.schedule(TimeUnit.NANOSECONDS.toMillis(tracked.reservedAt - now) + 1);
+            return;
+        }
+        sent.increment();
+        tracked.reservedAt = NOT_RESERVED;
+        tracked.lastEdit = now;
+        tracked.shown = view;
+        tc.editMessageById(tracked.messageId, view.toMessage()).queue(m -> {}, t -> remove(tracked));
+        tracked.schedule(Math.min(view.untilChange(timeStep), MAX_DELAY));
     }
 
-    private boolean processGuildUpdate(JDA jda, long guildId, Set<Long> toRemove) {
-        Guild guild = jda.getGuildById(guildId);
-        if (guild == null) {
-            return false;
-        }
+    // takes the next edit from the budget, and says when it may be sent
+    private synchronized long reserveEdit(long earliest)
+    {
+        long at = Math.max(earliest, nextEdit - EDIT_BURST);
+        nextEdit = Math.max(nextEdit, earliest) + EDIT_SPACING;
+        return at;
+    }
 
-        Pair<Long, Long> pair = lastNP.get(guildId);
-        TextChannel tc = guild.getTextChannelById(pair.getKey());
-        if (tc == null) {
-            return false;
-        }
+    private void remove(Tracked tracked)
+    {
+        lastNP.remove(tracked.guildId, tracked);
+        tracked.cancel();
+    }
 
-        Message msg = getUpdatedNowPlayingMessage(jda, guild);
-        return updateNowPlayingMessage(tc, pair.getValue(), msg, guildId);
+    private void countMinute()
+    {
+        sentPerMinute = sent.sumThenReset();
+        unchangedPerMinute = unchanged.sumThenReset();
+        deferredPerMinute = deferred.sumThenReset();
     }
 
-    private Message getUpdatedNowPlayingMessage(JDA jda, Guild guild) {
-        AudioHandler handler = (AudioHandler) guild.getAudioManager().getSendingHandler();
-        Message msg = handler.getNowPlaying(jda);
-        return (msg != null) ? msg : handler.getNoMusicPlaying(jda);
+    /**
+     * @return the number of now playing messages being kept up to date
+     */
+    public int getMessages()
+    {
+        return lastNP.size();
     }
 
-    private boolean updateNowPlayingMessage(TextChannel tc, long messageId, Message msg, long guildId) {
-        try {
-            tc.editMessageById(messageId, msg).queue(m -> {}, t -> lastNP.remove(guildId));
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    /**
+     * @return the edits sent in the last full minute
+     */
+    public long getEditsPerMinute()
+    {
+        return sentPerMinute;
     }
 
-    private void removeInvalidGuilds(Set<Long> toRemove) {
-        toRemove.forEach(lastNP::remove);
+    /**
+     * @return the looks in the last full minute that found nothing to edit
+     */
+    public long getUnchangedPerMinute()
+    {
+        return unchangedPerMinute;
     }
 
+    /**
+     * @return the edits held back in the last full minute to keep to the budget
+     */
+    public long getDeferredPerMinute()
+    {
+        return deferredPerMinute;
+    }
 
     // "event"-based methods
     public void onTrackUpdate(AudioTrack track)
@@ -145,10 +246,56 @@ public class NowplayingHandler
     
     public void onMessageDelete(Guild guild, long messageId)
     {
-        Pair<Long,Long> pair = lastNP.get(guild.getIdLong());
-        if(pair==null)
+        Tracked tracked = lastNP.get(guild.getIdLong());
+        if(tracked==null)
             return;
-        if(pair.getValue() == messageId)
-            lastNP.remove(guild.getIdLong());
+        if(tracked.messageId == messageId)
+            remove(tracked);
+    }
+
+    private class Tracked implements Runnable
+    {
+        private final long guildId, channelId, messageId;
+        // only touched while running, and runs never overlap
+        private NowPlayingView shown;
+        private long lastEdit = System.nanoTime();
+        private long reservedAt = NOT_RESERVED; // the edit slot it is waiting for
+        private ScheduledFuture<?> next;
+
+        private Tracked(long guildId, long channelId, long messageId, NowPlayingView shown)
+        {
+            this.guildId = guildId;
+            this.channelId = channelId;
+            this.messageId = messageId;
+            this.shown = shown;
+        }
+
+        // replaces whatever look was scheduled before
+        private synchronized void schedule(long delay)
+        {
+            if(next != null)
+                next.cancel(false);
+            try
+            {
+                next = updates.schedule(this, delay, TimeUnit.MILLISECONDS);
+            }
+            catch(RejectedExecutionException ex)
+            {
+                // shutting down
+                next = null;
+            }
+        }
+
+        private synchronized void cancel()
+        {
+            if(next != null)
+                next.cancel(false);
+        }
+
+        @Override
+        public synchronized void run()
+        {
+            update(this);
+        }
     }
 }
@@ -18,9 +18,11 @@ package com.jagrosh.jmusicbot.audio;
 import com.dunctebot.sourcemanagers.DuncteBotSources;
 import com.jagrosh.jmusicbot.BotConfig;
 import com.jagrosh.jmusicbot.settings.SettingsManager;
+import com.jagrosh.jmusicbot.utils.OtherUtil;
 import com.sedmelluq.discord.lavaplayer.container.MediaContainerRegistry;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManagers;
 import com.sedmelluq.discord.lavaplayer.source.bandcamp.BandcampAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.beam.BeamAudioSourceManager;
@@ -31,7 +33,11 @@ import com.sedmelluq.discord.lavaplayer.source.soundcloud.SoundCloudAudioSourceM
 import com.sedmelluq.discord.lavaplayer.source.twitch.TwitchStreamAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.vimeo.VimeoAudioSourceManager;
 import dev.lavalink.youtube.YoutubeAudioSourceManager;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import net.dv8tion.jda.api.entities.Guild;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  *
@@ -39,8 +45,17 @@ import net.dv8tion.jda.api.entities.Guild;
  */
 public class PlayerManager extends DefaultAudioPlayerManager
 {
+    private final static long CACHE_SIZE = 16 * 1024 * 1024;
+    private final static long CACHE_TTL = TimeUnit.HOURS.toMillis(1);
+    private final static long CACHE_NEGATIVE_TTL = TimeUnit.MINUTES.toMillis(5);
+    private final static String STORE_FILE = "trackstore.bin";
+    private final static long STORE_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+    private final static Logger LOG = LoggerFactory.getLogger(PlayerManager.class);
+
     private final BotConfig botConfig;
 
+    private final CachingSourceManager trackCache = new CachingSourceManager(CACHE_SIZE, CACHE_TTL, CACHE_NEGATIVE_TTL);
+
     private static PlayerManager playerManager;
 
     private final SettingsManager settingsManager;
@@ -61,6 +76,17 @@ public class PlayerManager extends DefaultAudioPlayerManager
     
     public void init()
     {
+        // must come first, it asks all the other sources on a miss
+        registerSourceManager(trackCache);
+        try
+        {
+            trackCache.setStore(new TrackStore(OtherUtil.getPath(STORE_FILE), STORE_MAX_AGE));
+        }
+        catch(IOException ex)
+        {
+            LOG.warn("Failed to open " + STORE_FILE + ", resolved tracks won't be kept across restarts", ex);
+        }
+
         TransformativeAudioSourceManager.createTransforms(botConfig.getTransforms()).forEach(this::registerSourceManager);
 
         YoutubeAudioSourceManager yt = new YoutubeAudioSourceManager(true);
@@ -81,6 +107,19 @@ public class PlayerManager extends DefaultAudioPlayerManager
         DuncteBotSources.registerAll(this, "en-US");
     }
     
+    @Override
+    public void registerSourceManager(AudioSourceManager sourceManager)
+    {
+        super.registerSourceManager(sourceManager);
+        if(sourceManager != trackCache)
+            trackCache.addSource(sourceManager);
+    }
+
+    public CachingSourceManager getTrackCache()
+    {
+        return trackCache;
+    }
+    
     public boolean hasHandler(Guild guild)
     {
         return guild.getAudioManager().getSendingHandler()!=null;
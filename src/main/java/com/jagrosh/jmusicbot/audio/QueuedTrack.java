@@ -28,13 +28,14 @@ public class QueuedTrack implements Queueable
 {
     private final AudioTrack track;
     private final RequestMetadata requestMetadata;
+    private String entry; // everything it's built from is final, so it never goes stale
 
     public QueuedTrack(AudioTrack track, RequestMetadata rm)
     {
         this.track = track;
         this.track.setUserData(rm == null ? RequestMetadata.EMPTY : rm);
 
-        this.requestMetadata = rm;
+        this.requestMetadata = rm == null ? RequestMetadata.EMPTY : rm;
         if (this.track.isSeekable() && rm != null)
             track.setPosition(rm.requestInfo.startTimestamp);
     }
@@ -45,6 +46,12 @@ public class QueuedTrack implements Queueable
         return requestMetadata.getOwner();
     }
     
+    @Override
+    public long getDuration()
+    {
+        return track.getDuration();
+    }
+
     public AudioTrack getTrack()
     {
         return track;
@@ -53,9 +60,16 @@ public class QueuedTrack implements Queueable
     @Override
     public String toString() 
     {
-        String entry = "`[" + TimeUtil.formatTime(track.getDuration()) + "]` ";
-        AudioTrackInfo trackInfo = track.getInfo();
-        entry = entry + (trackInfo.uri.startsWith("http") ? "[**" + trackInfo.title + "**]("+trackInfo.uri+")" : "**" + trackInfo.title + "**");
-        return entry + " - <@" + track.getUserData(RequestMetadata.class).getOwner() + ">";
+        // racing threads build equal strings, so there is no need to lock
+        String entry = this.entry;
+        if(entry == null)
+        {
+            entry = "`[" + TimeUtil.formatTime(track.getDuration()) + "]` ";
+            AudioTrackInfo trackInfo = track.getInfo();
+            entry = entry + (trackInfo.uri.startsWith("http") ? "[**" + trackInfo.title + "**]("+trackInfo.uri+")" : "**" + trackInfo.title + "**");
+            entry = entry + " - <@" + requestMetadata.getOwner() + ">";
+            this.entry = entry;
+        }
+        return entry;
     }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Turns tracks into bytes and back with the player manager, for keeping them
+ * around cheaply
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+final class TrackCodec
+{
+    private TrackCodec() {}
+
+    /**
+     * @throws IOException if the track's source can't encode it
+     */
+    static byte[] encode(AudioPlayerManager manager, AudioTrack track) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manager.encodeTrack(new MessageOutput(out), track);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return a new track, or null if its source isn't registered anymore
+     */
+    static AudioTrack decode(AudioPlayerManager manager, byte[] encoded) throws IOException
+    {
+        DecodedTrackHolder holder = manager.decodeTrack(new MessageInput(new ByteArrayInputStream(encoded)));
+        return holder == null ? null : holder.decodedTrack;
+    }
+}
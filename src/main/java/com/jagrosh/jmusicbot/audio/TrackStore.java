@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.jagrosh.jmusicbot.utils.AppendLog;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.LongSupplier;
+
+/**
+ * A file of what identifiers resolved to, so lookups survive a restart.
+ * Records older than the maximum age are ignored, and dropped the next time
+ * the file is rewritten.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class TrackStore implements Closeable
+{
+    private final static int COMPACT_MIN = 1024 * 1024; // don't bother rewriting smaller files
+
+    private final AppendLog<String> log;
+
+    /**
+     * Opens the store, creating the file if needed
+     *
+     * @param path the file
+     * @param maxAge how long a record is used after it was written, in milliseconds
+     * @throws IOException if the file can't be opened
+     */
+    public TrackStore(Path path, long maxAge) throws IOException
+    {
+        this(path, maxAge, System::currentTimeMillis);
+    }
+
+    TrackStore(Path path, long maxAge, LongSupplier clock) throws IOException
+    {
+        this.log = new AppendLog<>(path, AppendLog.STRING_KEYS, maxAge, clock, COMPACT_MIN);
+    }
+
+    /**
+     * @param identifier what was looked up
+     * @return the data stored for it, or null if there is none or it is too old
+     */
+    public byte[] get(String identifier) throws IOException
+    {
+        AppendLog.Stored stored = log.get(identifier);
+        return stored == null ? null : stored.getData();
+    }
+
+    /**
+     * @param identifier what was looked up
+     * @return the data stored for it and when it was stored, or null if there
+     *         is none or it is too old
+     */
+    public AppendLog.Stored getStored(String identifier) throws IOException
+    {
+        return log.get(identifier);
+    }
+
+    /**
+     * Stores data for an identifier, replacing anything stored before
+     *
+     * @param identifier what was looked up
+     * @param data what it resolved to
+     */
+    public void put(String identifier, byte[] data) throws IOException
+    {
+        log.put(identifier, data);
+    }
+
+    /**
+     * @return the number of identifiers with a record
+     */
+    public int size()
+    {
+        return log.size();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        log.close();
+    }
+}
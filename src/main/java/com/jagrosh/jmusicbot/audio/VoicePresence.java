@@ -0,0 +1,168 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.jagrosh.jmusicbot.utils.ConcurrentLongMap;
+import java.util.ArrayList;
+import java.util.List;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.GuildVoiceState;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.VoiceChannel;
+import net.dv8tion.jda.api.events.guild.voice.GuildVoiceDeafenEvent;
+import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
+
+/**
+ * Keeps count of who is listening to the bot in each guild, and of their
+ * votes to skip, from the voice events as they come in. The channel is only
+ * walked when the bot itself joins or moves, when the counts turn out to be
+ * for a channel the bot is no longer in, and after a reconnect, which can
+ * miss events.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class VoicePresence
+{
+    private final ConcurrentLongMap<GuildPresence> guilds = new ConcurrentLongMap<>();
+
+    private static VoicePresence voicePresence;
+
+    public static VoicePresence getInstance(){
+        if(voicePresence == null){
+            voicePresence = new VoicePresence();
+        }
+        return voicePresence;
+    }
+
+    private VoicePresence()
+    {
+    }
+
+    public void onVoiceUpdate(GuildVoiceUpdateEvent event)
+    {
+        Member member = event.getEntity();
+        Guild guild = member.getGuild();
+        if(member.equals(guild.getSelfMember()))
+            sync(guild);
+        else
+            presence(guild).moved(member.getIdLong(), isListening(member), idOf(event.getChannelLeft()), idOf(event.getChannelJoined()));
+    }
+
+    public void onDeafen(GuildVoiceDeafenEvent event)
+    {
+        Member member = event.getMember();
+        if(member.equals(event.getGuild().getSelfMember()))
+            return;
+        presence(event.getGuild()).deafened(member.getIdLong(), isListening(member), idOf(event.getVoiceState().getChannel()));
+    }
+
+    /**
+     * @param guild the guild
+     * @return the number of members listening to the bot, who are neither bots nor deafened
+     */
+    public int getListeners(Guild guild)
+    {
+        return sync(guild).getListeners();
+    }
+
+    /**
+     * @param guild the guild
+     * @return the votes to skip the current track from members listening right now
+     */
+    public int getVotes(Guild guild)
+    {
+        return sync(guild).getVotes();
+    }
+
+    /**
+     * Adds a vote to skip the current track
+     *
+     * @param guild the guild
+     * @param userId the user voting
+     * @return false if the user already voted
+     */
+    public boolean vote(Guild guild, long userId)
+    {
+        return sync(guild).vote(userId);
+    }
+
+    /**
+     * Walks the channel again in every guild with counts, for after events
+     * may have been missed
+     *
+     * @param jda the reconnected JDA
+     */
+    public void resync(JDA jda)
+    {
+        for(Guild guild : jda.getGuilds())
+        {
+            GuildPresence presence = guilds.get(guild.getIdLong());
+            if(presence != null)
+                synchronized(presence)
+                {
+                    walk(presence, guild.getSelfMember().getVoiceState().getChannel());
+                }
+        }
+    }
+
+    public void clearVotes(long guildId)
+    {
+        GuildPresence presence = guilds.get(guildId);
+        if(presence != null)
+            presence.clearVotes();
+    }
+
+    private GuildPresence presence(Guild guild)
+    {
+        return guilds.computeIfAbsent(guild.getIdLong(), id -> new GuildPresence());
+    }
+
+    // only walks the channel if the bot isn't where the counts say it is
+    private GuildPresence sync(Guild guild)
+    {
+        GuildPresence presence = presence(guild);
+        // events for this guild wait until the walk is done, instead of being overwritten by it
+        synchronized(presence)
+        {
+            VoiceChannel channel = guild.getSelfMember().getVoiceState().getChannel();
+            if(presence.getChannel() != idOf(channel))
+                walk(presence, channel);
+        }
+        return presence;
+    }
+
+    private static void walk(GuildPresence presence, VoiceChannel channel)
+    {
+        List<Long> listening = new ArrayList<>();
+        if(channel != null)
+            for(Member member : channel.getMembers())
+                if(isListening(member))
+                    listening.add(member.getIdLong());
+        presence.reset(idOf(channel), listening);
+    }
+
+    private static boolean isListening(Member member)
+    {
+        GuildVoiceState state = member.getVoiceState();
+        return !member.getUser().isBot() && state != null && !state.isDeafened();
+    }
+
+    private static long idOf(VoiceChannel channel)
+    {
+        return channel == null ? 0 : channel.getIdLong();
+    }
+}
@@ -17,7 +17,9 @@ package com.jagrosh.jmusicbot.commands.dj;
 
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
+import com.jagrosh.jmusicbot.audio.QueuedTrack;
 import com.jagrosh.jmusicbot.commands.DJCommand;
+import com.jagrosh.jmusicbot.queue.AbstractQueue;
 
 /**
  *
@@ -54,8 +56,19 @@ public class SkiptoCmd extends DJCommand
             event.reply(event.getClient().getError()+" Position must be a valid integer between 1 and "+handler.getQueue().size()+"!");
             return;
         }
-        handler.getQueue().skip(index-1);
-        event.reply(event.getClient().getSuccess()+" Skipped to **"+handler.getQueue().get(0).getTrack().getInfo().title+"**");
+        AbstractQueue<QueuedTrack> queue = handler.getQueue();
+        QueuedTrack next;
+        synchronized(queue.getList())
+        {
+            if(index>queue.size())
+            {
+                event.reply(event.getClient().getError()+" Position must be a valid integer between 1 and "+queue.size()+"!");
+                return;
+            }
+            queue.skip(index-1);
+            next = queue.get(0);
+        }
+        event.reply(event.getClient().getSuccess()+" Skipped to **"+next.getTrack().getInfo().title+"**");
         handler.getPlayer().stopTrack();
     }
 
@@ -17,6 +17,7 @@ package com.jagrosh.jmusicbot.commands.dj;
 
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
+import com.jagrosh.jmusicbot.audio.NowplayingHandler;
 import com.jagrosh.jmusicbot.commands.DJCommand;
 import com.jagrosh.jmusicbot.settings.Settings;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
@@ -29,11 +30,14 @@ public class VolumeCmd extends DJCommand
 {
     private static final String COMMAND_NAME = "volume";
 
+    private final NowplayingHandler nowplayingHandler;
+
     public VolumeCmd()
     {
         super(COMMAND_NAME);
         this.help = "sets or shows volume";
         this.arguments = "[0-150]";
+        this.nowplayingHandler = NowplayingHandler.getInstance();
     }
 
     @Override
@@ -60,6 +64,7 @@ public class VolumeCmd extends DJCommand
             {
                 handler.getPlayer().setVolume(nvolume);
                 settings.setVolume(nvolume);
+                nowplayingHandler.onPlayerUpdate(event.getGuild().getIdLong());
                 event.reply(FormatUtil.volumeIcon(nvolume)+" Volume changed from `"+volume+"` to `"+nvolume+"`");
             }
         }
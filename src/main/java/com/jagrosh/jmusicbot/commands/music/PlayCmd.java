@@ -36,7 +36,9 @@ import com.jagrosh.jmusicbot.commands.MusicCommand;
 import com.jagrosh.jmusicbot.playlist.PlaylistLoader.Playlist;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Message;
@@ -133,15 +135,14 @@ public class PlayCmd extends MusicCommand {
         }
 
         private int loadPlaylist(AudioPlaylist playlist, AudioTrack exclude) {
-            int[] count = {0};
-            playlist.getTracks().stream().forEach((track) -> {
-                if (!botConfig.isTooLong(track) && !track.equals(exclude)) {
-                    AudioHandler handler = (AudioHandler) event.getGuild().getAudioManager().getSendingHandler();
-                    handler.addTrack(new QueuedTrack(track, RequestMetadata.fromResultHandler(event)));
-                    count[0]++;
-                }
-            });
-            return count[0];
+            RequestMetadata rm = RequestMetadata.fromResultHandler(event);
+            List<QueuedTrack> tracks = playlist.getTracks().stream()
+                    .filter(track -> !botConfig.isTooLong(track) && !track.equals(exclude))
+                    .map(track -> new QueuedTrack(track, rm))
+                    .collect(Collectors.toList());
+            AudioHandler handler = (AudioHandler) event.getGuild().getAudioManager().getSendingHandler();
+            handler.addTracks(tracks);
+            return tracks.size();
         }
 
         @Override
@@ -218,7 +219,10 @@ public class PlayCmd extends MusicCommand {
             event.getChannel().sendMessage(loadingEmoji + " Loading playlist **" + event.getArgs() + "**... (" + playlist.getItems().size() + " items)").queue(m ->
             {
                 AudioHandler handler = (AudioHandler) event.getGuild().getAudioManager().getSendingHandler();
-                playlist.loadTracks(playerManager, (at) -> handler.addTrack(new QueuedTrack(at, RequestMetadata.fromResultHandler(event))), () -> {
+                RequestMetadata rm = RequestMetadata.fromResultHandler(event);
+                playlist.loadBatches(playerManager, (batch) -> handler.addTracks(batch.stream()
+                        .map(at -> new QueuedTrack(at, rm))
+                        .collect(Collectors.toList())), () -> {
                     StringBuilder builder = new StringBuilder(playlist.getTracks().isEmpty()
                             ? event.getClient().getWarning() + " No tracks were loaded!"
                             : event.getClient().getSuccess() + " Loaded **" + playlist.getTracks().size() + "** tracks!");
@@ -15,19 +15,19 @@
  */
 package com.jagrosh.jmusicbot.commands.music;
 
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 import com.jagrosh.jdautilities.command.CommandEvent;
-import com.jagrosh.jdautilities.menu.Paginator;
 import com.jagrosh.jmusicbot.EventWaiterProvider;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
 import com.jagrosh.jmusicbot.audio.NowplayingHandler;
 import com.jagrosh.jmusicbot.audio.QueuedTrack;
 import com.jagrosh.jmusicbot.commands.MusicCommand;
+import com.jagrosh.jmusicbot.queue.QueueSnapshot;
 import com.jagrosh.jmusicbot.settings.QueueType;
 import com.jagrosh.jmusicbot.settings.RepeatMode;
 import com.jagrosh.jmusicbot.settings.Settings;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
+import com.jagrosh.jmusicbot.utils.LazyPaginator;
 import com.jagrosh.jmusicbot.utils.TimeUtil;
 import net.dv8tion.jda.api.MessageBuilder;
 import net.dv8tion.jda.api.Permission;
@@ -40,7 +40,7 @@ import net.dv8tion.jda.api.exceptions.PermissionException;
  */
 public class QueueCmd extends MusicCommand 
 {
-    private final Paginator.Builder builder;
+    private final LazyPaginator.Builder builder;
 
     private static final String COMMAND_NAME = "queue";
 
@@ -53,14 +53,9 @@ public class QueueCmd extends MusicCommand
         this.arguments = "[pagenum]";
         this.bePlaying = true;
         this.botPermissions = new Permission[]{Permission.MESSAGE_ADD_REACTION,Permission.MESSAGE_EMBED_LINKS};
-        builder = new Paginator.Builder()
-                .setColumns(1)
+        builder = new LazyPaginator.Builder()
                 .setFinalAction(m -> {try{m.clearReactions().queue();}catch(PermissionException ignore){}})
                 .setItemsPerPage(10)
-                .waitOnSinglePage(false)
-                .useNumberedItems(true)
-                .showPageNumbers(true)
-                .wrapPageEnds(true)
                 .setEventWaiter(EventWaiterProvider.getInstance())
                 .setTimeout(1, TimeUnit.MINUTES);
         this.nowplayingHandler = NowplayingHandler.getInstance();
@@ -70,7 +65,7 @@ public class QueueCmd extends MusicCommand
     public void doCommand(CommandEvent event) {
         int pagenum = parsePageNumber(event.getArgs());
         AudioHandler ah = (AudioHandler) event.getGuild().getAudioManager().getSendingHandler();
-        List<QueuedTrack> list = ah.getQueue().getList();
+        QueueSnapshot<QueuedTrack> list = ah.getQueue().snapshot();
 
         if (list.isEmpty()) {
             handleEmptyQueue(event, ah);
@@ -100,27 +95,19 @@ public class QueueCmd extends MusicCommand
         });
     }
 
-    private void processQueue(CommandEvent event, AudioHandler ah, List<QueuedTrack> list, int pagenum) {
-        String[] songs = new String[list.size()];
-        long total = 0;
-
-        for (int i = 0; i < list.size(); i++) {
-            total += list.get(i).getTrack().getDuration();
-            songs[i] = list.get(i).toString();
-        }
-
+    private void processQueue(CommandEvent event, AudioHandler ah, QueueSnapshot<QueuedTrack> list, int pagenum) {
         Settings settings = event.getClient().getSettingsFor(event.getGuild());
-        long finalTotal = total;
 
-        builder.setText((i1, i2) -> getQueueTitle(ah, event.getClient().getSuccess(), songs.length, finalTotal, settings.getRepeatMode(), settings.getQueueType()))
-                .setItems(songs)
+        // entries are only formatted when their page is shown, always from the same snapshot
+        builder.setText((i1, i2) -> getQueueTitle(ah, event.getClient().getSuccess(), list.size(), list.getDuration(), list.getLiveCount(), settings.getRepeatMode(), settings.getQueueType()))
+                .setItems(list.size(), i -> list.get(i).toString())
                 .setUsers(event.getAuthor())
                 .setColor(event.getSelfMember().getColor());
 
         builder.build().paginate(event.getChannel(), pagenum);
     }
     
-    private String getQueueTitle(AudioHandler ah, String success, int songslength, long total, RepeatMode repeatmode, QueueType queueType)
+    private String getQueueTitle(AudioHandler ah, String success, int songslength, long total, int live, RepeatMode repeatmode, QueueType queueType)
     {
         StringBuilder sb = new StringBuilder();
         if(ah.getPlayer().getPlayingTrack()!=null)
@@ -130,6 +117,7 @@ public class QueueCmd extends MusicCommand
         }
         return FormatUtil.filter(sb.append(success).append(" Current Queue | ").append(songslength)
                 .append(" entries | `").append(TimeUtil.formatTime(total)).append("` ")
+                .append(live > 0 ? "+ " + live + " live " : "")
                 .append("| ").append(queueType.getEmoji()).append(" `").append(queueType.getUserFriendlyName()).append('`')
                 .append(repeatmode.getEmoji() != null ? " | "+repeatmode.getEmoji() : "").toString());
     }
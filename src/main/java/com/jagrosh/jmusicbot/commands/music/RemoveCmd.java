@@ -19,6 +19,8 @@ import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
 import com.jagrosh.jmusicbot.audio.QueuedTrack;
 import com.jagrosh.jmusicbot.commands.MusicCommand;
+import com.jagrosh.jmusicbot.queue.AbstractQueue;
+import com.jagrosh.jmusicbot.queue.QueueSnapshot;
 import com.jagrosh.jmusicbot.settings.Settings;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.User;
@@ -43,7 +45,8 @@ public class RemoveCmd extends MusicCommand
     @Override
     public void doCommand(CommandEvent event) {
         AudioHandler handler = (AudioHandler) event.getGuild().getAudioManager().getSendingHandler();
-        if (handler.getQueue().isEmpty()) {
+        QueueSnapshot<QueuedTrack> queue = handler.getQueue().snapshot();
+        if (queue.isEmpty()) {
             event.replyError("There is nothing in the queue!");
             return;
         }
@@ -53,9 +56,9 @@ public class RemoveCmd extends MusicCommand
             return;
         }
 
-        int pos = parsePosition(event.getArgs(), handler.getQueue().size());
+        int pos = parsePosition(event.getArgs(), queue.size());
         if (pos == -1) {
-            event.replyError("Position must be a valid integer between 1 and " + handler.getQueue().size() + "!");
+            event.replyError("Position must be a valid integer between 1 and " + queue.size() + "!");
             return;
         }
 
@@ -85,12 +88,23 @@ public class RemoveCmd extends MusicCommand
         Settings settings = event.getClient().getSettingsFor(event.getGuild());
         boolean isDJ = checkDJPermission(event, settings);
 
-        QueuedTrack qt = handler.getQueue().get(pos - 1);
-        if (qt.getIdentifier() == event.getAuthor().getIdLong()) {
-            handler.getQueue().remove(pos - 1);
+        AbstractQueue<QueuedTrack> queue = handler.getQueue();
+        QueuedTrack qt;
+        boolean owner;
+        // the entry must not change between checking and removing it
+        synchronized (queue.getList()) {
+            if (pos > queue.size()) {
+                event.replyError("Position must be a valid integer between 1 and " + queue.size() + "!");
+                return;
+            }
+            qt = queue.get(pos - 1);
+            owner = qt.getIdentifier() == event.getAuthor().getIdLong();
+            if (owner || isDJ)
+                queue.remove(pos - 1);
+        }
+        if (owner) {
             event.replySuccess("Removed **" + qt.getTrack().getInfo().title + "** from the queue");
         } else if (isDJ) {
-            handler.getQueue().remove(pos - 1);
             notifyUserRemoval(event, qt);
         } else {
             event.replyError("You cannot remove **" + qt.getTrack().getInfo().title + "** because you didn't add it!");
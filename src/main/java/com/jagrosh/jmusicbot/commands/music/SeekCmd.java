@@ -17,6 +17,7 @@ package com.jagrosh.jmusicbot.commands.music;
 
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
+import com.jagrosh.jmusicbot.audio.NowplayingHandler;
 import com.jagrosh.jmusicbot.audio.RequestMetadata;
 import com.jagrosh.jmusicbot.commands.DJCommand;
 import com.jagrosh.jmusicbot.commands.MusicCommand;
@@ -35,6 +36,8 @@ public class SeekCmd extends MusicCommand
 
     private static final String COMMAND_NAME = "seek";
 
+    private final NowplayingHandler nowplayingHandler;
+
     public SeekCmd()
     {
         super(COMMAND_NAME);
@@ -42,6 +45,7 @@ public class SeekCmd extends MusicCommand
         this.arguments = "[+ | -] <HH:MM:SS | MM:SS | SS>|<0h0m0s | 0m0s | 0s>";
         this.beListening = true;
         this.bePlaying = true;
+        this.nowplayingHandler = NowplayingHandler.getInstance();
     }
 
     @Override
@@ -96,6 +100,7 @@ public class SeekCmd extends MusicCommand
     private void seekTrack(CommandEvent event, AudioTrack playingTrack, TimeUtil.SeekTime seekTime) {
         try {
             playingTrack.setPosition(seekTime.relative ? playingTrack.getPosition() + seekTime.milliseconds : seekTime.milliseconds);
+            nowplayingHandler.onPlayerUpdate(event.getGuild().getIdLong());
             event.replySuccess("Successfully seeked to `" + TimeUtil.formatTime(playingTrack.getPosition()) + "/" + TimeUtil.formatTime(playingTrack.getDuration()) + "`!");
         } catch (Exception e) {
             event.replyError("An error occurred while trying to seek: " + e.getMessage());
@@ -18,6 +18,7 @@ package com.jagrosh.jmusicbot.commands.music;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
 import com.jagrosh.jmusicbot.audio.RequestMetadata;
+import com.jagrosh.jmusicbot.audio.VoicePresence;
 import com.jagrosh.jmusicbot.commands.MusicCommand;
 import com.jagrosh.jmusicbot.settings.SettingsManager;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
@@ -32,6 +33,8 @@ public class SkipCmd extends MusicCommand
 
     private final SettingsManager settingsManager;
 
+    private final VoicePresence voicePresence;
+
     public SkipCmd()
     {
         super(COMMAND_NAME);
@@ -39,6 +42,7 @@ public class SkipCmd extends MusicCommand
         this.beListening = true;
         this.bePlaying = true;
         this.settingsManager = SettingsManager.getInstance();
+        this.voicePresence = VoicePresence.getInstance();
     }
 
     @Override
@@ -69,11 +73,12 @@ public class SkipCmd extends MusicCommand
     }
 
     private void processSkipVote(CommandEvent event, AudioHandler handler, double skipRatio) {
-        int listeners = getActiveListeners(event);
+        boolean voted = voicePresence.vote(event.getGuild(), event.getAuthor().getIdLong());
+        int listeners = voicePresence.getListeners(event.getGuild());
         int requiredVotes = (int) Math.ceil(listeners * skipRatio);
-        int currentVotes = updateVoteCount(event, handler);
+        int currentVotes = voicePresence.getVotes(event.getGuild());
 
-        String voteMessage = formatVoteMessage(event, handler, currentVotes, requiredVotes, listeners);
+        String voteMessage = formatVoteMessage(event, voted, currentVotes, requiredVotes, listeners);
 
         if (currentVotes >= requiredVotes) {
             voteMessage += "\n" + event.getClient().getSuccess() + " Skipped **" + handler.getPlayer().getPlayingTrack().getInfo().title
@@ -84,25 +89,10 @@ public class SkipCmd extends MusicCommand
         event.reply(voteMessage);
     }
 
-    private int getActiveListeners(CommandEvent event) {
-        return (int) event.getSelfMember().getVoiceState().getChannel().getMembers().stream()
-                .filter(m -> !m.getUser().isBot() && !m.getVoiceState().isDeafened())
-                .count();
-    }
-
-    private int updateVoteCount(CommandEvent event, AudioHandler handler) {
-        if (!handler.getVotes().contains(event.getAuthor().getId())) {
-            handler.getVotes().add(event.getAuthor().getId());
-        }
-        return (int) event.getSelfMember().getVoiceState().getChannel().getMembers().stream()
-                .filter(m -> handler.getVotes().contains(m.getUser().getId()))
-                .count();
-    }
-
-    private String formatVoteMessage(CommandEvent event, AudioHandler handler, int skippers, int required, int listeners) {
-        String prefix = handler.getVotes().contains(event.getAuthor().getId())
-                ? event.getClient().getWarning() + " You already voted to skip this song `["
-                : event.getClient().getSuccess() + " You voted to skip the song `[";
+    private String formatVoteMessage(CommandEvent event, boolean voted, int skippers, int required, int listeners) {
+        String prefix = voted
+                ? event.getClient().getSuccess() + " You voted to skip the song `["
+                : event.getClient().getWarning() + " You already voted to skip this song `[";
 
         return prefix + skippers + " votes, " + required + "/" + listeners + " needed]`";
     }
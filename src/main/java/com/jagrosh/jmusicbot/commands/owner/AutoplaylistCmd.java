@@ -60,7 +60,7 @@ public class AutoplaylistCmd extends OwnerCommand
             return;
         }
         String pname = event.getArgs().replaceAll("\\s+", "_");
-        if(playlistLoader.getPlaylist(pname)==null)
+        if(!playlistLoader.playlistExists(pname))
         {
             event.reply(event.getClient().getError()+" Could not find `"+pname+".txt`!");
         }
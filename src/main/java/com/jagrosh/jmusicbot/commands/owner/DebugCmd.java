@@ -18,12 +18,19 @@ package com.jagrosh.jmusicbot.commands.owner;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jdautilities.commons.JDAUtilitiesInfo;
 import com.jagrosh.jmusicbot.BotConfig;
+import com.jagrosh.jmusicbot.Scheduler;
+import com.jagrosh.jmusicbot.TaskGroup;
+import com.jagrosh.jmusicbot.audio.AudioHandler;
+import com.jagrosh.jmusicbot.audio.CachingSourceManager;
+import com.jagrosh.jmusicbot.audio.NowplayingHandler;
+import com.jagrosh.jmusicbot.audio.PlayerManager;
 import com.jagrosh.jmusicbot.commands.OwnerCommand;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import com.sedmelluq.discord.lavaplayer.tools.PlayerLibrary;
 import net.dv8tion.jda.api.JDAInfo;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.ChannelType;
+import net.dv8tion.jda.api.entities.Guild;
 
 /**
  *
@@ -73,6 +80,38 @@ public class DebugCmd extends OwnerCommand
         sb.append("\n\nRuntime Information:")
                 .append("\n  Total Memory = ").append(total)
                 .append("\n  Used Memory = ").append(used);
+        sb.append("\n\nAudio Information:")
+                .append("\n  JitterBuffer = ").append(botConfig.getJitterBuffer()).append("ms");
+        for(Guild guild : event.getJDA().getGuilds())
+        {
+            AudioHandler handler = (AudioHandler) guild.getAudioManager().getSendingHandler();
+            if(handler != null && (handler.getUnderruns() > 0 || handler.getLateFrames() > 0))
+                sb.append("\n  ").append(guild.getId()).append(" = ")
+                        .append(handler.getUnderruns()).append(" underruns, ")
+                        .append(handler.getLateFrames()).append(" late frames");
+        }
+        CachingSourceManager cache = PlayerManager.getInstance().getTrackCache();
+        sb.append("\n\nTrack Cache Information:")
+                .append("\n  Hits = ").append(cache.getHits())
+                .append("\n  Store Hits = ").append(cache.getStoreHits())
+                .append("\n  Misses = ").append(cache.getMisses())
+                .append("\n  Entries = ").append(cache.getEntries())
+                .append("\n  Size = ").append(cache.getSize() / 1024).append("KB")
+                .append("\n  Evictions = ").append(cache.getEvictions());
+        sb.append("\n\nScheduler Information:");
+        for(TaskGroup group : Scheduler.getInstance().getGroups())
+            sb.append("\n  ").append(group.getName()).append(group.isBlocking() ? " (blocking)" : "").append(" = ")
+                    .append(group.getRuns()).append(" runs, ")
+                    .append(group.getFailures()).append(" failures, ")
+                    .append(group.getOverruns()).append(" overruns, ")
+                    .append(String.format("%.1fms avg, %.1fms max, %.1fms late",
+                            group.getAverageRunTime(), group.getMaxRunTime(), group.getAverageLateness()));
+        NowplayingHandler nowplaying = NowplayingHandler.getInstance();
+        sb.append("\n\nNow Playing Information:")
+                .append("\n  Messages = ").append(nowplaying.getMessages())
+                .append("\n  Edits = ").append(nowplaying.getEditsPerMinute()).append("/min")
+                .append("\n  Unchanged = ").append(nowplaying.getUnchangedPerMinute()).append("/min")
+                .append("\n  Deferred = ").append(nowplaying.getDeferredPerMinute()).append("/min");
         sb.append("\n\nDiscord Information:")
                 .append("\n  ID = ").append(event.getJDA().getSelfUser().getId())
                 .append("\n  Guilds = ").append(event.getJDA().getGuildCache().size())
@@ -16,12 +16,12 @@
 package com.jagrosh.jmusicbot.commands.owner;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import com.jagrosh.jdautilities.command.Command;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jmusicbot.commands.OwnerCommand;
 import com.jagrosh.jmusicbot.playlist.PlaylistLoader;
-import com.jagrosh.jmusicbot.playlist.PlaylistLoader.Playlist;
 
 /**
  *
@@ -83,7 +83,7 @@ public class PlaylistCmd extends OwnerCommand
             {
                 event.replyError("Please provide a name for the playlist!");
             } 
-            else if(playlistLoader.getPlaylist(pname) == null)
+            else if(!playlistLoader.playlistExists(pname))
             {
                 try
                 {
@@ -118,7 +118,7 @@ public class PlaylistCmd extends OwnerCommand
         protected void execute(CommandEvent event) 
         {
             String pname = event.getArgs().replaceAll("\\s+", "_");
-            if(playlistLoader.getPlaylist(pname)==null)
+            if(!playlistLoader.playlistExists(pname))
                 event.reply(event.getClient().getError()+" Playlist `"+pname+"` doesn't exist!");
             else
             {
@@ -159,24 +159,22 @@ public class PlaylistCmd extends OwnerCommand
                 return;
             }
             String pname = parts[0];
-            Playlist playlist = playlistLoader.getPlaylist(pname);
-            if(playlist==null)
+            if(!playlistLoader.playlistExists(pname))
                 event.reply(event.getClient().getError()+" Playlist `"+pname+"` doesn't exist!");
             else
             {
-                StringBuilder builder = new StringBuilder();
-                playlist.getItems().forEach(item -> builder.append("\r\n").append(item));
+                List<String> items = new ArrayList<>();
                 String[] urls = parts[1].split("\\|");
                 for(String url: urls)
                 {
                     String u = url.trim();
                     if(u.startsWith("<") && u.endsWith(">"))
                         u = u.substring(1, u.length()-1);
-                    builder.append("\r\n").append(u);
+                    items.add(u);
                 }
                 try
                 {
-                    playlistLoader.writePlaylist(pname, builder.toString());
+                    playlistLoader.appendToPlaylist(pname, items);
                     event.reply(event.getClient().getSuccess()+" Successfully added "+urls.length+" items to playlist `"+pname+"`!");
                 }
                 catch(IOException e)
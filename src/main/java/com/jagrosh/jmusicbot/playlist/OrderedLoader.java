@@ -0,0 +1,240 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads a list of identifiers, a limited number at a time, and passes each
+ * result on in the order of the list no matter which load finishes first.
+ * Results that arrive early wait until everything before them is passed on.
+ * The done callback runs exactly once, after the last result. Handlers are
+ * called one at a time, but never while holding this loader's lock, so they
+ * are free to call into the player. A handler that throws is logged and
+ * skipped over. Results that are ready together are passed on in one go, and
+ * an optional callback runs after each such run, so they can be handled as a
+ * batch.
+ *
+ * It can also be held back to the first few items, and let further along
+ * the list bit by bit, so a long list is only loaded as far as it is needed.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class OrderedLoader
+{
+    private final static Logger log = LoggerFactory.getLogger(OrderedLoader.class);
+
+    private final AudioPlayerManager manager;
+    private final List<String> identifiers;
+    private final int concurrency;
+    private final IntFunction<AudioLoadResultHandler> handlers;
+    private final Runnable drained, done;
+    private final Consumer<AudioLoadResultHandler>[] results; // waiting to be passed on, by index
+    private int next = 0, delivered = 0, running = 0, allowed;
+    private boolean started = false, draining = false, finished = false;
+
+    /**
+     * @param manager the manager to load with
+     * @param identifiers what to load
+     * @param concurrency how many loads may run at once
+     * @param handlers gives the handler for the result at an index, asked in order
+     * @param done runs after all results were handled
+     */
+    OrderedLoader(AudioPlayerManager manager, List<String> identifiers, int concurrency,
+            IntFunction<AudioLoadResultHandler> handlers, Runnable done)
+    {
+        this(manager, identifiers, concurrency, handlers, null, done);
+    }
+
+    /**
+     * @param manager the manager to load with
+     * @param identifiers what to load
+     * @param concurrency how many loads may run at once
+     * @param handlers gives the handler for the result at an index, asked in order
+     * @param drained runs after each run of results that were passed on
+     *                together, before done; never at the same time as a handler
+     * @param done runs after all results were handled
+     */
+    @SuppressWarnings("unchecked")
+    OrderedLoader(AudioPlayerManager manager, List<String> identifiers, int concurrency,
+            IntFunction<AudioLoadResultHandler> handlers, Runnable drained, Runnable done)
+    {
+        this.manager = manager;
+        this.identifiers = identifiers;
+        this.concurrency = Math.max(concurrency, 1);
+        this.handlers = handlers;
+        this.drained = drained;
+        this.done = done;
+        this.results = new Consumer[identifiers.size()];
+        this.allowed = identifiers.size();
+    }
+
+    /**
+     * Only loads items before the given index, until it is raised. Must be
+     * called before {@link #start()} to hold anything back.
+     *
+     * @param allowed the index of the first item that may not be loaded yet
+     */
+    synchronized void allow(int allowed)
+    {
+        this.allowed = allowed;
+        submitMore();
+    }
+
+    /**
+     * @return the number of results that were handled so far
+     */
+    synchronized int getDelivered()
+    {
+        return delivered;
+    }
+
+    synchronized boolean isFinished()
+    {
+        return finished;
+    }
+
+    void start()
+    {
+        synchronized(this)
+        {
+            started = true;
+            submitMore();
+        }
+        drain();
+    }
+
+    private void submitMore()
+    {
+        while(started && next < identifiers.size() && next < allowed && running < concurrency)
+        {
+            running++;
+            submit(next++);
+        }
+    }
+
+    private void submit(int index)
+    {
+        manager.loadItem(identifiers.get(index), new AudioLoadResultHandler()
+        {
+            @Override
+            public void trackLoaded(AudioTrack at)
+            {
+                complete(index, h -> h.trackLoaded(at));
+            }
+
+            @Override
+            public void playlistLoaded(AudioPlaylist ap)
+            {
+                complete(index, h -> h.playlistLoaded(ap));
+            }
+
+            @Override
+            public void noMatches()
+            {
+                complete(index, h -> h.noMatches());
+            }
+
+            @Override
+            public void loadFailed(FriendlyException fe)
+            {
+                complete(index, h -> h.loadFailed(fe));
+            }
+        });
+    }
+
+    private void complete(int index, Consumer<AudioLoadResultHandler> result)
+    {
+        synchronized(this)
+        {
+            running--;
+            results[index] = result;
+            submitMore();
+        }
+        drain();
+    }
+
+    // passes on every result that is next in line; if another thread is already at it, leaves them to it
+    private void drain()
+    {
+        synchronized(this)
+        {
+            if(draining)
+                return;
+            draining = true;
+        }
+        boolean handled = false; // since drained last ran
+        while(true)
+        {
+            Consumer<AudioLoadResultHandler> ready = null;
+            int index = -1;
+            synchronized(this)
+            {
+                if(delivered == results.length || results[delivered] == null)
+                {
+                    if(!handled || drained == null)
+                    {
+                        draining = false;
+                        if(finished || delivered < results.length)
+                            return;
+                        finished = true;
+                        break;
+                    }
+                }
+                else
+                {
+                    ready = results[delivered];
+                    results[delivered] = null;
+                    index = delivered++;
+                }
+            }
+            if(ready == null)
+            {
+                // still draining, so no handler runs meanwhile; looks again after, for results that came in
+                handled = false;
+                try
+                {
+                    drained.run();
+                }
+                catch(RuntimeException ex)
+                {
+                    log.warn("Handling a run of results failed", ex);
+                }
+                continue;
+            }
+            handled = true;
+            try
+            {
+                ready.accept(handlers.apply(index));
+            }
+            catch(RuntimeException ex)
+            {
+                // still draining, so it must not stop the rest of the list
+                log.warn("Handling the result for " + identifiers.get(index) + " failed", ex);
+            }
+        }
+        done.run();
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Knows the playlists in the playlists folder and their parsed contents, so
+ * looking one up doesn't list the folder or read the file again. A watcher on
+ * the folder notices files being added, removed or edited by hand, and a file
+ * is only parsed again after it changed. If the folder can't be watched, the
+ * folder is listed on every lookup instead.
+ *
+ * Changes made through here are applied one at a time. Appending only writes
+ * the new lines, and a whole file is rewritten by writing a temporary file and
+ * renaming it over the old one, so a crash never leaves half a playlist.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class PlaylistCatalog
+{
+    private final static Logger log = LoggerFactory.getLogger(PlaylistCatalog.class);
+    private final static String EXTENSION = ".txt";
+    private final static String LINE_BREAK = "\r\n";
+
+    private final Path folder;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile boolean watching = false;
+    private boolean unwatchable = false;
+    private WatchService watcher;
+
+    PlaylistCatalog(Path folder)
+    {
+        this.folder = folder;
+    }
+
+    /**
+     * @return the names of all playlists, sorted
+     */
+    List<String> getNames()
+    {
+        refresh();
+        List<String> names = new ArrayList<>(slots.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * @param name the playlist
+     * @return its parsed contents, or null if there is no such playlist or it can't be read
+     */
+    PlaylistFile get(String name)
+    {
+        refresh();
+        Slot slot = slots.get(name);
+        if(slot == null)
+            return null;
+        PlaylistFile file = slot.file;
+        if(file == null)
+        {
+            try
+            {
+                file = PlaylistFile.parse(Files.readAllLines(path(name)));
+            }
+            catch(IOException ex)
+            {
+                return null;
+            }
+            // if the file changed meanwhile, the slot was replaced and this one is forgotten
+            slot.file = file;
+        }
+        return file;
+    }
+
+    /**
+     * @param name the playlist
+     * @return true if there is a playlist with the name
+     */
+    boolean contains(String name)
+    {
+        refresh();
+        return slots.containsKey(name);
+    }
+
+    void create(String name) throws IOException
+    {
+        synchronized(writeLock)
+        {
+            Files.createFile(path(name));
+            changed(name);
+        }
+    }
+
+    void delete(String name) throws IOException
+    {
+        synchronized(writeLock)
+        {
+            Files.delete(path(name));
+            removed(name);
+        }
+    }
+
+    /**
+     * Replaces the contents of a playlist
+     *
+     * @param name the playlist
+     * @param text the new contents
+     */
+    void write(String name, String text) throws IOException
+    {
+        synchronized(writeLock)
+        {
+            Path path = path(name);
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try(FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+            {
+                writeFully(out, text);
+                out.force(true);
+            }
+            try
+            {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            changed(name);
+        }
+    }
+
+    /**
+     * Adds lines to the end of a playlist, without reading or rewriting what
+     * is already there
+     *
+     * @param name the playlist
+     * @param lines the lines to add
+     */
+    void append(String name, List<String> lines) throws IOException
+    {
+        if(lines.isEmpty())
+            return;
+        synchronized(writeLock)
+        {
+            Path path = path(name);
+            boolean newline;
+            try(FileChannel in = FileChannel.open(path, StandardOpenOption.READ))
+            {
+                // only the last byte matters, to know if the new lines need a line break first
+                ByteBuffer last = ByteBuffer.allocate(1);
+                newline = in.size() > 0 && in.read(last, in.size() - 1) == 1 && last.get(0) != '\n';
+            }
+            try(FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+            {
+                writeFully(out, (newline ? LINE_BREAK : "") + String.join(LINE_BREAK, lines));
+            }
+            changed(name);
+        }
+    }
+
+    /**
+     * Forgets the parsed contents of a playlist, after it was created or written
+     *
+     * @param name the playlist
+     */
+    void changed(String name)
+    {
+        slots.put(name, new Slot());
+    }
+
+    /**
+     * Forgets a playlist, after it was deleted
+     *
+     * @param name the playlist
+     */
+    void removed(String name)
+    {
+        slots.remove(name);
+    }
+
+    private Path path(String name)
+    {
+        return folder.resolve(name + EXTENSION);
+    }
+
+    synchronized void close()
+    {
+        watching = false;
+        if(watcher != null)
+        {
+            try
+            {
+                watcher.close();
+            }
+            catch(IOException ignore) {}
+            watcher = null;
+        }
+    }
+
+    private void refresh()
+    {
+        if(watching)
+            return;
+        synchronized(this)
+        {
+            if(watching)
+                return;
+            if(watcher == null && !unwatchable && Files.isDirectory(folder))
+            {
+                try
+                {
+                    WatchService service = folder.getFileSystem().newWatchService();
+                    watcher = service;
+                    folder.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    Thread thread = new Thread(() -> watch(service), "playlist-watcher");
+                    thread.setDaemon(true);
+                    thread.start();
+                    watching = true;
+                }
+                catch(IOException | UnsupportedOperationException ex)
+                {
+                    log.warn("Can't watch the playlists folder, it will be listed on every lookup instead", ex);
+                    watcher = null;
+                    unwatchable = true;
+                }
+            }
+            // also needed once watching, for whatever was there before
+            scan();
+        }
+    }
+
+    private void scan()
+    {
+        List<String> found = new ArrayList<>();
+        if(Files.isDirectory(folder))
+        {
+            try(DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + EXTENSION))
+            {
+                for(Path path : stream)
+                    found.add(name(path));
+            }
+            catch(IOException ex)
+            {
+                log.warn("Failed to list the playlists folder", ex);
+            }
+        }
+        slots.keySet().retainAll(found);
+        for(String name : found)
+            slots.putIfAbsent(name, new Slot());
+    }
+
+    private void watch(WatchService service)
+    {
+        try
+        {
+            while(true)
+            {
+                WatchKey key = service.take();
+                for(WatchEvent<?> event : key.pollEvents())
+                {
+                    if(event.kind() == StandardWatchEventKinds.OVERFLOW)
+                    {
+                        // events were lost, so start over from the folder itself
+                        slots.clear();
+                        synchronized(this)
+                        {
+                            scan();
+                        }
+                        continue;
+                    }
+                    Path path = (Path) event.context();
+                    if(!path.toString().endsWith(EXTENSION))
+                        continue;
+                    if(event.kind() == StandardWatchEventKinds.ENTRY_DELETE)
+                        removed(name(path));
+                    else
+                        changed(name(path));
+                }
+                if(!key.reset())
+                {
+                    // the folder itself is gone
+                    synchronized(this)
+                    {
+                        if(watcher == service)
+                        {
+                            watching = false;
+                            watcher = null;
+                        }
+                    }
+                    service.close();
+                    return;
+                }
+            }
+        }
+        catch(InterruptedException | ClosedWatchServiceException | IOException ignore) {}
+    }
+
+    private static void writeFully(FileChannel channel, String text) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static String name(Path path)
+    {
+        String file = path.getFileName().toString();
+        return file.substring(0, file.length() - EXTENSION.length());
+    }
+
+    private static class Slot
+    {
+        private volatile PlaylistFile file; // null until parsed
+    }
+
+    /**
+     * The parsed contents of a playlist file
+     */
+    static class PlaylistFile
+    {
+        private final List<String> items;
+        private final boolean shuffle;
+
+        private PlaylistFile(List<String> items, boolean shuffle)
+        {
+            this.items = Collections.unmodifiableList(items);
+            this.shuffle = shuffle;
+        }
+
+        /**
+         * @return the items in file order
+         */
+        List<String> getItems()
+        {
+            return items;
+        }
+
+        boolean isShuffle()
+        {
+            return shuffle;
+        }
+
+        static PlaylistFile parse(List<String> lines)
+        {
+            List<String> items = new ArrayList<>();
+            boolean shuffle = false;
+            for(String line : lines)
+            {
+                String trimmed = line.trim();
+                if(trimmed.isEmpty())
+                    continue;
+                if(trimmed.startsWith("#") || trimmed.startsWith("//"))
+                {
+                    String formatted = trimmed.replaceAll("\\s+", "");
+                    if(formatted.equalsIgnoreCase("#shuffle") || formatted.equalsIgnoreCase("//shuffle"))
+                        shuffle = true;
+                }
+                else
+                    items.add(trimmed);
+            }
+            return new PlaylistFile(items, shuffle);
+        }
+    }
+}
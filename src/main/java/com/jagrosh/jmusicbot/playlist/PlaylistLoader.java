@@ -16,19 +16,17 @@
 package com.jagrosh.jmusicbot.playlist;
 
 import com.jagrosh.jmusicbot.BotConfig;
+import com.jagrosh.jmusicbot.playlist.PlaylistCatalog.PlaylistFile;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  *
@@ -37,10 +35,12 @@ import java.util.stream.Collectors;
 public class PlaylistLoader
 {
     private final BotConfig config;
+    private final PlaylistCatalog catalog;
     
     private PlaylistLoader()
     {
         this.config = BotConfig.getInstance();
+        this.catalog = new PlaylistCatalog(OtherUtil.getPath(config.getPlaylistsFolder()));
     }
 
     private static PlaylistLoader playlistLoader;
@@ -54,11 +54,7 @@ public class PlaylistLoader
     public List<String> getPlaylistNames()
     {
         if(folderExists())
-        {
-            File folder = new File(OtherUtil.getPath(config.getPlaylistsFolder()).toString());
-            return Arrays.asList(folder.listFiles((pathname) -> pathname.getName().endsWith(".txt")))
-                    .stream().map(f -> f.getName().substring(0,f.getName().length()-4)).collect(Collectors.toList());
-        }
+            return catalog.getNames();
         else
         {
             createFolder();
@@ -80,70 +76,48 @@ public class PlaylistLoader
         return Files.exists(OtherUtil.getPath(config.getPlaylistsFolder()));
     }
     
+    public boolean playlistExists(String name)
+    {
+        return folderExists() && catalog.contains(name);
+    }
+    
     public void createPlaylist(String name) throws IOException
     {
-        Files.createFile(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"));
+        catalog.create(name);
     }
     
     public void deletePlaylist(String name) throws IOException
     {
-        Files.delete(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"));
+        catalog.delete(name);
     }
     
     public void writePlaylist(String name, String text) throws IOException
     {
-        Files.write(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"), text.trim().getBytes());
+        catalog.write(name, text.trim());
+    }
+    
+    public void appendToPlaylist(String name, List<String> items) throws IOException
+    {
+        catalog.append(name, items);
     }
 
     public Playlist getPlaylist(String name) {
-        if (!getPlaylistNames().contains(name)) {
-            return null;
-        }
-
         if (!folderExists()) {
             createFolder();
             return null;
         }
 
-        return loadPlaylist(name);
-    }
-
-    private Playlist loadPlaylist(String name) {
-        List<String> trackList = new ArrayList<>();
-        boolean[] shuffleFlag = {false};
-
-        try {
-            Path playlistPath = OtherUtil.getPath(config.getPlaylistsFolder() + File.separator + name + ".txt");
-            Files.readAllLines(playlistPath).forEach(line -> processPlaylistLine(line, trackList, shuffleFlag));
-
-            if (shuffleFlag[0]) {
-                shuffle(trackList);
-            }
-
-            return new Playlist(name, trackList, shuffleFlag[0]);
-        } catch (IOException e) {
+        PlaylistFile file = catalog.get(name);
+        if (file == null) {
             return null;
         }
-    }
-
-    private void processPlaylistLine(String line, List<String> trackList, boolean[] shuffleFlag) {
-        String trimmedLine = line.trim();
-        if (trimmedLine.isEmpty()) {
-            return;
-        }
 
-        if (trimmedLine.startsWith("#") || trimmedLine.startsWith("//")) {
-            checkForShuffleFlag(trimmedLine, shuffleFlag);
-        } else {
-            trackList.add(trimmedLine);
-        }
-    }
-
-    private void checkForShuffleFlag(String line, boolean[] shuffleFlag) {
-        String formattedLine = line.replaceAll("\\s+", "");
-        if (formattedLine.equalsIgnoreCase("#shuffle") || formattedLine.equalsIgnoreCase("//shuffle")) {
-            shuffleFlag[0] = true;
+        // the parsed items are shared, so every load gets its own copy to shuffle
+        List<String> trackList = new ArrayList<>(file.getItems());
+        if (file.isShuffle()) {
+            shuffle(trackList);
         }
+        return new Playlist(name, trackList, file.isShuffle());
     }
     
     private static <T> void shuffle(List<T> list)
@@ -165,7 +139,10 @@ public class PlaylistLoader
         private final boolean shuffle;
         private final List<AudioTrack> tracks = new LinkedList<>();
         private final List<PlaylistLoadError> errors = new LinkedList<>();
-        private boolean loaded = false;
+        private boolean loaded = false, keep = true;
+        private volatile int count = 0;
+        private int window = 0;
+        private OrderedLoader loader;
         
         private Playlist(String name, List<String> items, boolean shuffle)
         {
@@ -179,82 +156,155 @@ public class PlaylistLoader
             if(loaded)
                 return;
             loaded = true;
-            for(int i=0; i<items.size(); i++)
+            load(manager, consumer, null, callback);
+            loader.start();
+        }
+
+        /**
+         * Like {@link #loadTracks}, but hands over the tracks that were
+         * resolved together as one list, so they can be queued in one go
+         *
+         * @param manager the manager to load with
+         * @param consumer gets each run of tracks, in order
+         * @param callback runs once every item was resolved
+         */
+        public void loadBatches(AudioPlayerManager manager, Consumer<List<AudioTrack>> consumer, Runnable callback)
+        {
+            if(loaded)
+                return;
+            loaded = true;
+            // only touched while the loader is draining, which one thread does at a time
+            List<AudioTrack> batch = new ArrayList<>();
+            load(manager, batch::add, () ->
             {
-                boolean last = i+1 == items.size();
-                int index = i;
-                manager.loadItemOrdered(name, items.get(i), new AudioLoadResultHandler() 
-                {
-                    private void done()
-                    {
-                        if(last)
-                        {
-                            if(shuffle)
-                                shuffleTracks();
-                            if(callback != null)
-                                callback.run();
-                        }
-                    }
+                if(batch.isEmpty())
+                    return;
+                List<AudioTrack> ready = new ArrayList<>(batch);
+                batch.clear();
+                consumer.accept(ready);
+            }, callback);
+            loader.start();
+        }
+
+        /**
+         * Like {@link #loadTracks}, but only resolves items a window ahead of
+         * the tracks that are waiting to be played, and doesn't keep the
+         * tracks in {@link #getTracks()}. The consumer gets the first track as
+         * soon as it is resolved. Call {@link #fill(int)} whenever tracks were
+         * used up to resolve more.
+         *
+         * @param manager the manager to load with
+         * @param window how many items to resolve ahead
+         * @param consumer gets each track, in order
+         * @param callback runs once every item was resolved
+         */
+        public void streamTracks(AudioPlayerManager manager, int window, Consumer<AudioTrack> consumer, Runnable callback)
+        {
+            if(loaded)
+                return;
+            loaded = true;
+            keep = false;
+            this.window = Math.max(window, 1);
+            load(manager, consumer, null, callback);
+            loader.allow(this.window);
+            loader.start();
+        }
+
+        /**
+         * Lets a stream resolve further along the playlist
+         *
+         * @param waiting the number of resolved tracks that weren't played yet
+         */
+        public void fill(int waiting)
+        {
+            if(loader != null && !keep)
+                loader.allow(loader.getDelivered() + Math.max(window - waiting, 0));
+        }
+
+        /**
+         * @return true once every item was resolved
+         */
+        public boolean isDone()
+        {
+            return loader != null && loader.isFinished();
+        }
+
+        /**
+         * @return the number of tracks handed to the consumer so far
+         */
+        public int getTrackCount()
+        {
+            return count;
+        }
 
-                    @Override
-                    public void trackLoaded(AudioTrack at) 
+        private void load(AudioPlayerManager manager, Consumer<AudioTrack> consumer, Runnable drained, Runnable callback)
+        {
+            loader = new OrderedLoader(manager, items, config.getPlaylistConcurrency(), index -> new AudioLoadResultHandler() 
+            {
+                @Override
+                public void trackLoaded(AudioTrack at) 
+                {
+                    if(config.isTooLong(at))
+                        errors.add(new PlaylistLoadError(index, items.get(index), "This track is longer than the allowed maximum"));
+                    else
                     {
-                        if(config.isTooLong(at))
-                            errors.add(new PlaylistLoadError(index, items.get(index), "This track is longer than the allowed maximum"));
-                        else
-                        {
-                            at.setUserData(0L);
+                        at.setUserData(0L);
+                        if(keep)
                             tracks.add(at);
-                            consumer.accept(at);
-                        }
-                        done();
+                        count++;
+                        consumer.accept(at);
                     }
+                }
 
-                    @Override
-                    public void playlistLoaded(AudioPlaylist ap) 
+                @Override
+                public void playlistLoaded(AudioPlaylist ap) 
+                {
+                    if(ap.isSearchResult())
                     {
-                        if(ap.isSearchResult())
-                        {
-                            trackLoaded(ap.getTracks().get(0));
-                        }
-                        else if(ap.getSelectedTrack()!=null)
-                        {
-                            trackLoaded(ap.getSelectedTrack());
-                        }
-                        else
-                        {
-                            List<AudioTrack> loaded = new ArrayList<>(ap.getTracks());
-                            if(shuffle)
-                                for(int first =0; first<loaded.size(); first++)
-                                {
-                                    int second = (int)(Math.random()*loaded.size());
-                                    AudioTrack tmp = loaded.get(first);
-                                    loaded.set(first, loaded.get(second));
-                                    loaded.set(second, tmp);
-                                }
-                            loaded.removeIf(config::isTooLong);
-                            loaded.forEach(at -> at.setUserData(0L));
-                            tracks.addAll(loaded);
-                            loaded.forEach(consumer);
-                        }
-                        done();
+                        trackLoaded(ap.getTracks().get(0));
                     }
-
-                    @Override
-                    public void noMatches() 
+                    else if(ap.getSelectedTrack()!=null)
                     {
-                        errors.add(new PlaylistLoadError(index, items.get(index), "No matches found."));
-                        done();
+                        trackLoaded(ap.getSelectedTrack());
                     }
-
-                    @Override
-                    public void loadFailed(FriendlyException fe) 
+                    else
                     {
-                        errors.add(new PlaylistLoadError(index, items.get(index), "Failed to load track: "+fe.getLocalizedMessage()));
-                        done();
+                        List<AudioTrack> loaded = new ArrayList<>(ap.getTracks());
+                        if(shuffle)
+                            for(int first =0; first<loaded.size(); first++)
+                            {
+                                int second = (int)(Math.random()*loaded.size());
+                                AudioTrack tmp = loaded.get(first);
+                                loaded.set(first, loaded.get(second));
+                                loaded.set(second, tmp);
+                            }
+                        loaded.removeIf(config::isTooLong);
+                        loaded.forEach(at -> at.setUserData(0L));
+                        if(keep)
+                            tracks.addAll(loaded);
+                        count += loaded.size();
+                        loaded.forEach(consumer);
                     }
-                });
-            }
+                }
+
+                @Override
+                public void noMatches() 
+                {
+                    errors.add(new PlaylistLoadError(index, items.get(index), "No matches found."));
+                }
+
+                @Override
+                public void loadFailed(FriendlyException fe) 
+                {
+                    errors.add(new PlaylistLoadError(index, items.get(index), "Failed to load track: "+fe.getLocalizedMessage()));
+                }
+            }, drained, () -> 
+            {
+                if(shuffle)
+                    shuffleTracks();
+                if(callback != null)
+                    callback.run();
+            });
         }
         
         public void shuffleTracks()
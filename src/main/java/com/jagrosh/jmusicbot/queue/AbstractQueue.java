@@ -16,10 +16,15 @@
 package com.jagrosh.jmusicbot.queue;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
+ * Every operation holds the lock of the backing list, which is shared with the
+ * queues that replace this one when the queue type is changed. Callers that
+ * need more than a single operation, such as iterating, should either take a
+ * {@link #snapshot()} or synchronize on {@link #getList()} themselves.
  *
  * @author Wolfgang Schwendtbauer
  * @param <T>
@@ -28,90 +33,210 @@ public abstract class AbstractQueue<T extends Queueable>
 {
     protected AbstractQueue(AbstractQueue<T> queue)
     {
-        this.list = queue != null ? queue.getList() : new LinkedList<>();
+        this(queue, QueueList::new);
     }
 
-    protected final List<T> list;
+    /**
+     * @param queue the previous queue, whose items are carried over
+     * @param storage creates the backing list if there is no previous queue;
+     *                it keeps the totals through {@link TreeList#added} and
+     *                {@link TreeList#removed}, so subclasses can add their own
+     */
+    protected AbstractQueue(AbstractQueue<T> queue, Supplier<? extends QueueList<T>> storage)
+    {
+        this.list = queue != null ? queue.getList() : storage.get();
+    }
+
+    protected final QueueList<T> list;
+    private QueueSnapshot<T> snapshot;
 
     public abstract int add(T item);
 
+    /**
+     * Adds all items in order, with the same result as adding them one by one
+     * @param items the items to add
+     * @return the position the first item was added at, or -1 if there were no items
+     */
+    public int addAll(Collection<? extends T> items)
+    {
+        synchronized(list)
+        {
+            int first = -1;
+            for(T item : items)
+            {
+                int index = add(item);
+                if(first == -1)
+                    first = index;
+            }
+            return first;
+        }
+    }
+
     public void addAt(int index, T item)
     {
-        if(index >= list.size())
-            list.add(item);
-        else
-            list.add(index, item);
+        synchronized(list)
+        {
+            if(index >= list.size())
+                list.add(item);
+            else
+                list.add(index, item);
+        }
     }
 
     public int size() {
-        return list.size();
+        synchronized(list)
+        {
+            return list.size();
+        }
     }
 
     public T pull() {
-        return list.remove(0);
+        synchronized(list)
+        {
+            return list.remove(0);
+        }
     }
 
     public boolean isEmpty()
     {
-        return list.isEmpty();
+        synchronized(list)
+        {
+            return list.isEmpty();
+        }
     }
 
-    public List<T> getList()
+    /**
+     * @return the live backing list, which must only be accessed while
+     * synchronized on it
+     */
+    public QueueList<T> getList()
     {
         return list;
     }
 
+    /**
+     * Takes a snapshot in O(1), which can then be read without any locking.
+     * Snapshots are reused while the queue doesn't change.
+     * @return the current state of the queue
+     */
+    public QueueSnapshot<T> snapshot()
+    {
+        synchronized(list)
+        {
+            if(snapshot == null || snapshot.getVersion() != list.version())
+                snapshot = new QueueSnapshot<>(list);
+            return snapshot;
+        }
+    }
+
+    /**
+     * @return the summed duration of all entries, or Long.MAX_VALUE if any of them doesn't end
+     */
+    public long getTotalDuration()
+    {
+        synchronized(list)
+        {
+            return list.getLiveCount() > 0 ? Long.MAX_VALUE : list.getDuration();
+        }
+    }
+
+    /**
+     * @param identifier the requester
+     * @return the number of entries the requester has in the queue
+     */
+    public int getCount(long identifier)
+    {
+        synchronized(list)
+        {
+            return list.getCount(identifier);
+        }
+    }
+
     public T get(int index) {
-        return list.get(index);
+        synchronized(list)
+        {
+            return list.get(index);
+        }
     }
 
     public T remove(int index)
     {
-        return list.remove(index);
+        synchronized(list)
+        {
+            return list.remove(index);
+        }
     }
 
     public int removeAll(long identifier)
     {
-        int count = 0;
-        for(int i=list.size()-1; i>=0; i--)
+        synchronized(list)
         {
-            if(list.get(i).getIdentifier()==identifier)
+            int count = list.getCount(identifier);
+            int left = count;
+            for(int i=list.size()-1; left>0; i--)
             {
-                list.remove(i);
-                count++;
+                if(list.get(i).getIdentifier()==identifier)
+                {
+                    list.remove(i);
+                    left--;
+                }
             }
+            return count;
         }
-        return count;
     }
 
     public void clear()
     {
-        list.clear();
+        synchronized(list)
+        {
+            list.clear();
+        }
     }
 
     public int shuffle(long identifier)
     {
-        List<Integer> iset = new ArrayList<>();
-        for(int i=0; i<list.size(); i++)
+        synchronized(list)
         {
-            if(list.get(i).getIdentifier()==identifier)
-                iset.add(i);
+            List<Integer> iset = new ArrayList<>();
+            int i = 0;
+            for(T item : list)
+            {
+                if(item.getIdentifier()==identifier)
+                    iset.add(i);
+                i++;
+            }
+            return shuffle(iset);
         }
-        for(int j=0; j<iset.size(); j++)
+    }
+
+    /**
+     * Randomly swaps the items at the given positions among each other
+     * @param iset the positions to shuffle
+     * @return the number of shuffled positions
+     */
+    protected int shuffle(List<Integer> iset)
+    {
+        synchronized(list)
         {
-            int first = iset.get(j);
-            int second = iset.get((int)(Math.random()*iset.size()));
-            T temp = list.get(first);
-            list.set(first, list.get(second));
-            list.set(second, temp);
+            for(int j=0; j<iset.size(); j++)
+            {
+                int first = iset.get(j);
+                int second = iset.get((int)(Math.random()*iset.size()));
+                T temp = list.get(first);
+                list.set(first, list.get(second));
+                list.set(second, temp);
+            }
+            return iset.size();
         }
-        return iset.size();
     }
 
     public void skip(int number)
     {
         if (number > 0) {
-            list.subList(0, number).clear();
+            synchronized(list)
+            {
+                list.subList(0, number).clear();
+            }
         }
     }
 
@@ -123,8 +248,11 @@ public abstract class AbstractQueue<T extends Queueable>
      */
     public T moveItem(int from, int to)
     {
-        T item = list.remove(from);
-        list.add(to, item);
-        return item;
+        synchronized(list)
+        {
+            T item = list.remove(from);
+            list.add(to, item);
+            return item;
+        }
     }
 }
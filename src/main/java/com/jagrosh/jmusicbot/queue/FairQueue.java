@@ -15,7 +15,9 @@
  */
 package com.jagrosh.jmusicbot.queue;
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.ListIterator;
 import java.util.Set;
 
 /**
@@ -35,20 +37,68 @@ public class FairQueue<T extends Queueable> extends AbstractQueue<T>
     @Override
     public int add(T item)
     {
-        int lastIndex;
-        for(lastIndex=list.size()-1; lastIndex>-1; lastIndex--)
-            if(list.get(lastIndex).getIdentifier() == item.getIdentifier())
-                break;
-        lastIndex++;
-        set.clear();
-        for(; lastIndex<list.size(); lastIndex++)
+        synchronized(list)
         {
-            if(set.contains(list.get(lastIndex).getIdentifier()))
-                break;
-            set.add(list.get(lastIndex).getIdentifier());
+            int lastIndex;
+            for(lastIndex=list.size()-1; lastIndex>-1; lastIndex--)
+                if(list.get(lastIndex).getIdentifier() == item.getIdentifier())
+                    break;
+            lastIndex++;
+            set.clear();
+            for(; lastIndex<list.size(); lastIndex++)
+            {
+                if(set.contains(list.get(lastIndex).getIdentifier()))
+                    break;
+                set.add(list.get(lastIndex).getIdentifier());
+            }
+            list.add(lastIndex, item);
+            return lastIndex;
+        }
+    }
+
+    /**
+     * Interleaves a batch in a single pass over the queue. Consecutive items
+     * from the same requester continue scanning from where the previous item
+     * was placed, instead of searching for the requester's last entry again.
+     */
+    @Override
+    public int addAll(Collection<? extends T> items)
+    {
+        synchronized(list)
+        {
+            int first = -1;
+            ListIterator<T> it = null;
+            long identifier = 0;
+            for(T item : items)
+            {
+                if(it == null || item.getIdentifier() != identifier)
+                {
+                    identifier = item.getIdentifier();
+                    it = list.listIterator(list.size());
+                    while(it.hasPrevious())
+                    {
+                        if(it.previous().getIdentifier() == identifier)
+                        {
+                            it.next();
+                            break;
+                        }
+                    }
+                }
+                set.clear();
+                while(it.hasNext())
+                {
+                    if(!set.add(it.next().getIdentifier()))
+                    {
+                        it.previous();
+                        break;
+                    }
+                }
+                it.add(item);
+                if(first == -1)
+                    first = it.previousIndex();
+            }
+            return first;
         }
-        list.add(lastIndex, item);
-        return lastIndex;
     }
 
 }
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2024 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link FairQueue} that places items without scanning the queue.
+ *
+ * A queue built by {@link FairQueue#add} is a sequence of rounds, where round
+ * k holds the k-th entry of every requester with at least k entries, always in
+ * the same requester order. This class keeps each requester's round count in
+ * that order, so the position of any requester's k-th entry can be computed
+ * from the counts alone. Operations that break the round structure (moving
+ * items, inserting at the front, removing from the middle) fall back to the
+ * scanning behaviour of {@link FairQueue} until the structure is verified again,
+ * so the resulting order is always identical to that of a {@link FairQueue}.
+ *
+ * Placing an entry costs O(R) for R requesters, on top of the O(log n) insert
+ * into the list, since the counts are summed in requester order. Removing or
+ * shuffling all k entries of a requester finds their positions in one pass,
+ * in O(R + k). With a few requesters per guild this beats keeping the counts
+ * in a tree, which requester rotation on every pull would keep reordering.
+ * Changes made through another queue sharing the same list, such as the one
+ * this queue replaced, are noticed through the list's version.
+ *
+ * @author John Grosh (jagrosh)
+ * @param <T>
+ */
+public class IndexedFairQueue<T extends Queueable> extends FairQueue<T>
+{
+    // requesters in round order; each round lists its entries in this order
+    private final LinkedHashMap<Long, Requester> requesters = new LinkedHashMap<>();
+    private boolean indexed = false; // requesters currently describes the list
+    private boolean checked = false; // the list has been verified since it was last changed
+    private long version = 0; // the list version the two flags above are up to date with
+
+    public IndexedFairQueue(AbstractQueue<T> queue)
+    {
+        super(queue);
+    }
+
+    @Override
+    public int add(T item)
+    {
+        synchronized(list)
+        {
+            if(!ensureIndexed())
+                return synced(super.add(item));
+            long identifier = item.getIdentifier();
+            Requester requester = requesters.get(identifier);
+            int index = position(identifier, requester == null ? 1 : requester.count + 1);
+            list.add(index, item);
+            if(requester == null)
+                requesters.put(identifier, requester = new Requester(identifier));
+            requester.count++;
+            return synced(index);
+        }
+    }
+
+    @Override
+    public int addAll(Collection<? extends T> items)
+    {
+        synchronized(list)
+        {
+            if(!ensureIndexed())
+            {
+                checked = false;
+                return super.addAll(items);
+            }
+            int first = -1;
+            for(T item : items)
+            {
+                int index = add(item);
+                if(first == -1)
+                    first = index;
+            }
+            return first;
+        }
+    }
+
+    @Override
+    public void addAt(int index, T item)
+    {
+        synchronized(list)
+        {
+            super.addAt(index, item);
+            invalidate();
+        }
+    }
+
+    @Override
+    public T pull()
+    {
+        synchronized(list)
+        {
+            sync();
+            T item = super.pull();
+            if(indexed)
+                rotate(item.getIdentifier());
+            else
+                checked = false;
+            return synced(item);
+        }
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        synchronized(list)
+        {
+            if(index == 0)
+                return pull();
+            T item = super.remove(index);
+            invalidate();
+            return item;
+        }
+    }
+
+    @Override
+    public int removeAll(long identifier)
+    {
+        synchronized(list)
+        {
+            if(!ensureIndexed())
+            {
+                checked = false;
+                return super.removeAll(identifier);
+            }
+            Requester requester = requesters.get(identifier);
+            if(requester == null)
+                return 0;
+            int[] positions = positions(identifier, requester.count);
+            // remove from the last round backwards, so earlier positions stay valid
+            for(int round = requester.count; round > 0; round--)
+                list.remove(positions[round - 1]);
+            requesters.remove(identifier);
+            return synced(requester.count);
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        synchronized(list)
+        {
+            super.clear();
+            requesters.clear();
+            indexed = true;
+            checked = true;
+            synced(null);
+        }
+    }
+
+    @Override
+    public int shuffle(long identifier)
+    {
+        synchronized(list)
+        {
+            // swapping entries of the same requester keeps what is known about the list
+            if(!ensureIndexed())
+                return synced(super.shuffle(identifier));
+            Requester requester = requesters.get(identifier);
+            if(requester == null)
+                return 0;
+            List<Integer> iset = new ArrayList<>(requester.count);
+            for(int index : positions(identifier, requester.count))
+                iset.add(index);
+            return synced(shuffle(iset));
+        }
+    }
+
+    @Override
+    public void skip(int number)
+    {
+        synchronized(list)
+        {
+            sync();
+            if(indexed)
+                for(T item : list.subList(0, Math.max(number, 0)))
+                    rotate(item.getIdentifier());
+            else
+                checked = false;
+            super.skip(number);
+            synced(null);
+        }
+    }
+
+    @Override
+    public T moveItem(int from, int to)
+    {
+        synchronized(list)
+        {
+            T item = super.moveItem(from, to);
+            invalidate();
+            return item;
+        }
+    }
+
+    /**
+     * Computes the position of a requester's entry in the given round, which
+     * is also where a new entry goes if the requester has one round less
+     * @param identifier the requester
+     * @param round the 1-based round
+     * @return the index in the list
+     */
+    private int position(long identifier, int round)
+    {
+        int index = 0;
+        boolean before = true;
+        for(Requester requester : requesters.values())
+        {
+            if(requester.identifier == identifier)
+                before = false;
+            index += Math.min(requester.count, round - 1);
+            if(before && requester.count >= round)
+                index++;
+        }
+        return index;
+    }
+
+    /**
+     * Computes the positions of a requester's entries in the first rounds
+     * all at once
+     * @param identifier the requester
+     * @param rounds the number of rounds
+     * @return the index in the list of the entry in each round
+     */
+    private int[] positions(long identifier, int rounds)
+    {
+        // requesters with at least the given number of entries, counting more than rounds as rounds
+        int[] atLeast = new int[rounds + 1], before = new int[rounds + 1];
+        boolean isBefore = true;
+        for(Requester requester : requesters.values())
+        {
+            if(requester.identifier == identifier)
+                isBefore = false;
+            int count = Math.min(requester.count, rounds);
+            atLeast[count]++;
+            if(isBefore)
+                before[count]++;
+        }
+        for(int count = rounds - 1; count >= 0; count--)
+        {
+            atLeast[count] += atLeast[count + 1];
+            before[count] += before[count + 1];
+        }
+        int[] positions = new int[rounds];
+        int earlier = 0; // entries in the rounds before
+        for(int round = 1; round <= rounds; round++)
+        {
+            positions[round - 1] = earlier + before[round];
+            earlier += atLeast[round];
+        }
+        return positions;
+    }
+
+    /**
+     * Accounts for the head of the queue, which belonged to the given
+     * requester, being removed. Their next entry becomes the last one of the
+     * new first round, so they move to the end of the round order.
+     */
+    private void rotate(long identifier)
+    {
+        Requester requester = requesters.remove(identifier);
+        if(--requester.count > 0)
+            requesters.put(identifier, requester);
+    }
+
+    private void sync()
+    {
+        if(version != list.version())
+            invalidate();
+    }
+
+    private <R> R synced(R result)
+    {
+        version = list.version();
+        return result;
+    }
+
+    private void invalidate()
+    {
+        requesters.clear();
+        indexed = false;
+        checked = false;
+    }
+
+    /**
+     * Rebuilds the requester index if the list has changed in a way that
+     * wasn't tracked
+     * @return true if the list follows the round structure and is indexed
+     */
+    private boolean ensureIndexed()
+    {
+        sync();
+        if(indexed)
+            return true;
+        if(checked)
+            return false;
+        checked = true;
+        indexed = reindex();
+        synced(null);
+        if(!indexed)
+            requesters.clear();
+        return indexed;
+    }
+
+    private boolean reindex()
+    {
+        requesters.clear();
+        Map<Long, Integer> ranks = new HashMap<>();
+        int round = 1;
+        int lastRank = -1;
+        for(T item : list)
+        {
+            long identifier = item.getIdentifier();
+            Requester requester = requesters.get(identifier);
+            if(requester == null)
+            {
+                if(round != 1)
+                    return false;
+                requesters.put(identifier, requester = new Requester(identifier));
+                ranks.put(identifier, ranks.size());
+            }
+            requester.count++;
+            if(requester.count < round)
+                return false;
+            if(requester.count > round)
+            {
+                round = requester.count;
+                lastRank = -1;
+            }
+            int rank = ranks.get(identifier);
+            if(rank <= lastRank)
+                return false;
+            lastRank = rank;
+        }
+        return true;
+    }
+
+    private static class Requester
+    {
+        private final long identifier;
+        private int count = 0;
+
+        private Requester(long identifier)
+        {
+            this.identifier = identifier;
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.jagrosh.jmusicbot.queue;
 
+import java.util.Collection;
+
 /**
  *
  * @author Wolfgang Schwendtbauer
@@ -30,8 +32,22 @@ public class LinearQueue<T extends Queueable> extends AbstractQueue<T>
     @Override
     public int add(T item)
     {
-        list.add(item);
-        return list.size() - 1;
+        synchronized(list)
+        {
+            list.add(item);
+            return list.size() - 1;
+        }
+    }
+
+    @Override
+    public int addAll(Collection<? extends T> items)
+    {
+        synchronized(list)
+        {
+            int first = items.isEmpty() ? -1 : list.size();
+            list.addAll(items);
+            return first;
+        }
     }
 
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The list behind a queue, which keeps running totals of its entries as they
+ * are added and removed: the duration of all entries that end, the number of
+ * live streams, and the same per requester.
+ *
+ * @author John Grosh (jagrosh)
+ * @param <T>
+ */
+public class QueueList<T extends Queueable> extends TreeList<T>
+{
+    private long duration = 0;
+    private int live = 0;
+    private Map<Long, Requester> requesters = new HashMap<>();
+    private Totals totals; // handed out to snapshots, so requesters must be copied before changing it
+
+    /**
+     * @return the summed duration of the entries that end, in milliseconds
+     */
+    public long getDuration()
+    {
+        return duration;
+    }
+
+    /**
+     * @return the number of entries that don't end
+     */
+    public int getLiveCount()
+    {
+        return live;
+    }
+
+    /**
+     * @param identifier the requester
+     * @return the number of entries the requester has in the list
+     */
+    public int getCount(long identifier)
+    {
+        Requester requester = requesters.get(identifier);
+        return requester == null ? 0 : requester.count;
+    }
+
+    /**
+     * @param identifier the requester
+     * @return the summed duration of the requester's entries that end, in milliseconds
+     */
+    public long getDuration(long identifier)
+    {
+        Requester requester = requesters.get(identifier);
+        return requester == null ? 0 : requester.duration;
+    }
+
+    /**
+     * @param identifier the requester
+     * @return the number of the requester's entries that don't end
+     */
+    public int getLiveCount(long identifier)
+    {
+        Requester requester = requesters.get(identifier);
+        return requester == null ? 0 : requester.live;
+    }
+
+    /**
+     * @return the current totals, which don't change afterwards
+     */
+    Totals totals()
+    {
+        if(totals == null)
+            totals = new Totals(duration, live, requesters);
+        return totals;
+    }
+
+    @Override
+    protected void added(T element)
+    {
+        update(element, 1);
+    }
+
+    @Override
+    protected void removed(T element)
+    {
+        update(element, -1);
+    }
+
+    private void update(T element, int sign)
+    {
+        long length = element.getDuration();
+        boolean stream = length == Long.MAX_VALUE;
+        if(stream)
+            live += sign;
+        else
+            duration += sign * length;
+        if(totals != null)
+        {
+            requesters = new HashMap<>(requesters);
+            totals = null;
+        }
+        Requester requester = requesters.get(element.getIdentifier());
+        int count = sign + (requester == null ? 0 : requester.count);
+        if(count == 0)
+            requesters.remove(element.getIdentifier());
+        else
+            requesters.put(element.getIdentifier(), new Requester(count,
+                    (requester == null ? 0 : requester.duration) + (stream ? 0 : sign * length),
+                    (requester == null ? 0 : requester.live) + (stream ? sign : 0)));
+    }
+
+    static class Requester
+    {
+        final int count;
+        final long duration;
+        final int live;
+
+        private Requester(int count, long duration, int live)
+        {
+            this.count = count;
+            this.duration = duration;
+            this.live = live;
+        }
+    }
+
+    static class Totals
+    {
+        final long duration;
+        final int live;
+        final Map<Long, Requester> requesters;
+
+        private Totals(long duration, int live, Map<Long, Requester> requesters)
+        {
+            this.duration = duration;
+            this.live = live;
+            this.requesters = requesters;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import com.jagrosh.jmusicbot.queue.QueueList.Requester;
+import com.jagrosh.jmusicbot.queue.QueueList.Totals;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * An unmodifiable view of a queue at one point in time. Taking one is O(1),
+ * and it can be read from any thread without locking, no matter how the queue
+ * changes afterwards. It carries the queue's running totals from that time.
+ *
+ * @author John Grosh (jagrosh)
+ * @param <T>
+ */
+public final class QueueSnapshot<T extends Queueable> extends AbstractList<T>
+{
+    private final TreeList<T> items;
+    private final long version;
+    private final Totals totals;
+
+    QueueSnapshot(QueueList<T> list)
+    {
+        this.items = list.snapshot();
+        this.version = list.version();
+        this.totals = list.totals();
+    }
+
+    /**
+     * @return a number that is the same for two snapshots exactly when the queue didn't change in between
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public T get(int index)
+    {
+        return items.get(index);
+    }
+
+    @Override
+    public int size()
+    {
+        return items.size();
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return items.iterator();
+    }
+
+    /**
+     * @return the summed duration of all entries, or Long.MAX_VALUE if any of them doesn't end
+     */
+    public long getTotalDuration()
+    {
+        return totals.live > 0 ? Long.MAX_VALUE : totals.duration;
+    }
+
+    /**
+     * @return the summed duration of the entries that end
+     */
+    public long getDuration()
+    {
+        return totals.duration;
+    }
+
+    /**
+     * @return the number of entries that don't end
+     */
+    public int getLiveCount()
+    {
+        return totals.live;
+    }
+
+    /**
+     * @return the requesters with at least one entry
+     */
+    public Set<Long> getRequesters()
+    {
+        return Collections.unmodifiableSet(totals.requesters.keySet());
+    }
+
+    /**
+     * @param identifier the requester
+     * @return the number of entries the requester has in the queue
+     */
+    public int getCount(long identifier)
+    {
+        Requester requester = totals.requesters.get(identifier);
+        return requester == null ? 0 : requester.count;
+    }
+
+    /**
+     * @param identifier the requester
+     * @return the summed duration of the requester's entries, or Long.MAX_VALUE if any of them doesn't end
+     */
+    public long getTotalDuration(long identifier)
+    {
+        Requester requester = totals.requesters.get(identifier);
+        if(requester == null)
+            return 0;
+        return requester.live > 0 ? Long.MAX_VALUE : requester.duration;
+    }
+}
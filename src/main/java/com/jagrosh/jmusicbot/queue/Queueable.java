@@ -22,4 +22,12 @@ package com.jagrosh.jmusicbot.queue;
 public interface Queueable {
     
     public long getIdentifier();
+
+    /**
+     * @return the length in milliseconds, or Long.MAX_VALUE if it doesn't end
+     */
+    public default long getDuration()
+    {
+        return 0;
+    }
 }
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2024 John Grosh (jagrosh).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A list backed by an implicit treap (a randomized binary tree ordered by
+ * position), so that indexed access, insertion and removal are all
+ * O(log n) instead of the O(n) walks of a {@link java.util.LinkedList}.
+ *
+ * The tree is persistent: nodes are never changed once built, and every
+ * update copies only the O(log n) nodes on its path. This makes
+ * {@link #snapshot()} O(1), and a snapshot can be read from any thread while
+ * this list keeps changing.
+ *
+ * Subclasses can keep track of the elements through {@link #added} and
+ * {@link #removed}, which are called for every element that enters or leaves
+ * the list, whichever method it happens through.
+ *
+ * @author John Grosh (jagrosh)
+ * @param <T>
+ */
+public class TreeList<T> extends AbstractList<T>
+{
+    private Node<T> root;
+    private long version = 0;
+    private final boolean frozen;
+
+    public TreeList()
+    {
+        this(null, false);
+    }
+
+    private TreeList(Node<T> root, boolean frozen)
+    {
+        this.root = root;
+        this.frozen = frozen;
+    }
+
+    /**
+     * @return an unmodifiable list of the current elements, sharing this list's tree
+     */
+    public TreeList<T> snapshot()
+    {
+        return frozen ? this : new TreeList<>(root, true);
+    }
+
+    /**
+     * @return a counter that changes on every modification, including {@link #set}
+     */
+    public long version()
+    {
+        return version;
+    }
+
+    @Override
+    public int size()
+    {
+        return size(root);
+    }
+
+    @Override
+    public T get(int index)
+    {
+        checkIndex(index, size());
+        return node(index).value;
+    }
+
+    @Override
+    public T set(int index, T element)
+    {
+        checkMutable();
+        checkIndex(index, size());
+        T old = node(index).value;
+        root = set(root, index, element);
+        version++;
+        removed(old);
+        added(element);
+        return old;
+    }
+
+    @Override
+    public void add(int index, T element)
+    {
+        checkMutable();
+        checkIndex(index, size() + 1);
+        Node<T>[] parts = split(root, index);
+        root = merge(merge(parts[0], new Node<>(element)), parts[1]);
+        modCount++;
+        version++;
+        added(element);
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        checkMutable();
+        checkIndex(index, size());
+        Node<T>[] left = split(root, index);
+        Node<T>[] right = split(left[1], 1);
+        root = merge(left[0], right[1]);
+        modCount++;
+        version++;
+        removed(right[0].value);
+        return right[0].value;
+    }
+
+    @Override
+    public void clear()
+    {
+        checkMutable();
+        Node<T> old = root;
+        root = null;
+        modCount++;
+        version++;
+        removedAll(old);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex)
+    {
+        checkMutable();
+        if(fromIndex >= toIndex)
+            return;
+        Node<T>[] left = split(root, fromIndex);
+        Node<T>[] right = split(left[1], toIndex - fromIndex);
+        root = merge(left[0], right[1]);
+        modCount++;
+        version++;
+        removedAll(right[0]);
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new Itr();
+    }
+
+    /**
+     * Called after an element was added to the list
+     * @param element the added element
+     */
+    protected void added(T element) {}
+
+    /**
+     * Called after an element was removed from the list
+     * @param element the removed element
+     */
+    protected void removed(T element) {}
+
+    private void removedAll(Node<T> node)
+    {
+        if(node == null)
+            return;
+        removedAll(node.left);
+        removed(node.value);
+        removedAll(node.right);
+    }
+
+    private Node<T> node(int index)
+    {
+        Node<T> node = root;
+        while(true)
+        {
+            int leftSize = size(node.left);
+            if(index < leftSize)
+                node = node.left;
+            else if(index == leftSize)
+                return node;
+            else
+            {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private void checkMutable()
+    {
+        if(frozen)
+            throw new UnsupportedOperationException("snapshots can't be modified");
+    }
+
+    private static void checkIndex(int index, int bound)
+    {
+        if(index < 0 || index >= bound)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+    }
+
+    private static int size(Node<?> node)
+    {
+        return node == null ? 0 : node.size;
+    }
+
+    private static <T> Node<T> set(Node<T> node, int index, T element)
+    {
+        int leftSize = size(node.left);
+        if(index < leftSize)
+            return new Node<>(node.priority, node.value, set(node.left, index, element), node.right);
+        else if(index == leftSize)
+            return new Node<>(node.priority, element, node.left, node.right);
+        else
+            return new Node<>(node.priority, node.value, node.left, set(node.right, index - leftSize - 1, element));
+    }
+
+    /**
+     * Splits a tree into the first {@code count} elements and the rest
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] split(Node<T> node, int count)
+    {
+        if(node == null)
+            return new Node[]{null, null};
+        int leftSize = size(node.left);
+        if(count <= leftSize)
+        {
+            Node<T>[] parts = split(node.left, count);
+            parts[1] = node.with(parts[1], node.right);
+            return parts;
+        }
+        else
+        {
+            Node<T>[] parts = split(node.right, count - leftSize - 1);
+            parts[0] = node.with(node.left, parts[0]);
+            return parts;
+        }
+    }
+
+    /**
+     * Joins two trees, where every element of {@code left} comes before every element of {@code right}
+     */
+    private static <T> Node<T> merge(Node<T> left, Node<T> right)
+    {
+        if(left == null)
+            return right;
+        if(right == null)
+            return left;
+        if(left.priority > right.priority)
+            return left.with(left.left, merge(left.right, right));
+        else
+            return right.with(merge(left, right.left), right.right);
+    }
+
+    private static class Node<T>
+    {
+        private final int priority;
+        private final T value;
+        private final int size;
+        private final Node<T> left, right;
+
+        private Node(T value)
+        {
+            this(ThreadLocalRandom.current().nextInt(), value, null, null);
+        }
+
+        private Node(int priority, T value, Node<T> left, Node<T> right)
+        {
+            this.priority = priority;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+
+        // a copy of this node with other children, unless they are the same
+        private Node<T> with(Node<T> left, Node<T> right)
+        {
+            return left == this.left && right == this.right ? this : new Node<>(priority, value, left, right);
+        }
+    }
+
+    /**
+     * In-order iterator, so a full traversal is O(n) rather than O(n log n)
+     */
+    private class Itr implements Iterator<T>
+    {
+        private final Deque<Node<T>> stack = new ArrayDeque<>();
+        private int cursor = 0;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        private Itr()
+        {
+            descend(0);
+        }
+
+        // pushes the path to the element at the given index, keeping only the
+        // nodes that are still to be visited
+        private void descend(int index)
+        {
+            stack.clear();
+            Node<T> node = root;
+            while(node != null)
+            {
+                int leftSize = size(node.left);
+                if(index < leftSize)
+                {
+                    stack.push(node);
+                    node = node.left;
+                }
+                else if(index == leftSize)
+                {
+                    stack.push(node);
+                    return;
+                }
+                else
+                {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return cursor < size();
+        }
+
+        @Override
+        public T next()
+        {
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(stack.isEmpty())
+                throw new NoSuchElementException();
+            Node<T> node = stack.pop();
+            for(Node<T> n = node.right; n != null; n = n.left)
+                stack.push(n);
+            lastReturned = cursor++;
+            return node.value;
+        }
+
+        @Override
+        public void remove()
+        {
+            if(lastReturned < 0)
+                throw new IllegalStateException();
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            TreeList.this.remove(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+            descend(cursor);
+        }
+    }
+}
@@ -32,18 +32,21 @@ import org.json.JSONObject;
  */
 public class Settings implements GuildSettingsProvider {
     private final SettingsWriter settingsWriter;
-    protected long textId;
-    protected long voiceId;
-    protected long roleId;
-    private int volume;
-    private String defaultPlaylist;
-    private RepeatMode repeatMode;
-    private QueueType queueType;
-    private String prefix;
-    private double skipRatio;
-
-    public Settings(SettingsWriter settingsWriter, JSONObject jsonObject) {
+    private final long guildId;
+    // changed by commands, read from any thread
+    protected volatile long textId;
+    protected volatile long voiceId;
+    protected volatile long roleId;
+    private volatile int volume;
+    private volatile String defaultPlaylist;
+    private volatile RepeatMode repeatMode;
+    private volatile QueueType queueType;
+    private volatile String prefix;
+    private volatile double skipRatio;
+
+    public Settings(SettingsWriter settingsWriter, long guildId, JSONObject jsonObject) {
         this.settingsWriter = settingsWriter;
+        this.guildId = guildId;
         try {
             this.textId = Long.parseLong(jsonObject.has("text_channel_id") ? jsonObject.getString("text_channel_id") : "0");
         } catch (NumberFormatException e) {
@@ -67,8 +70,9 @@ public class Settings implements GuildSettingsProvider {
         this.queueType = jsonObject.has("queue_type") ? jsonObject.getEnum(QueueType.class, "queue_type") : QueueType.FAIR;
     }
 
-    public Settings(SettingsWriter settingsWriter) {
+    public Settings(SettingsWriter settingsWriter, long guildId) {
         this.settingsWriter = settingsWriter;
+        this.guildId = guildId;
         this.textId = 0;
         this.voiceId = 0;
         this.roleId = 0;
@@ -125,46 +129,46 @@ public class Settings implements GuildSettingsProvider {
     // Setters
     public void setTextChannel(TextChannel tc) {
         this.textId = tc == null ? 0 : tc.getIdLong();
-        this.settingsWriter.writeSettings();
+        this.settingsWriter.writeSettings(guildId);
     }
 
     public void setVoiceChannel(VoiceChannel vc) {
         this.voiceId = vc == null ? 0 : vc.getIdLong();
-        this.settingsWriter.writeSettings();
+        this.settingsWriter.writeSettings(guildId);
     }
 
     public void setDJRole(Role role) {
         this.roleId = role == null ? 0 : role.getIdLong();
-        this.settingsWriter.writeSettings();
+        this.settingsWriter.writeSettings(guildId);
     }
 
     public void setVolume(int volume) {
         this.volume = volume;
-        this.settingsWriter.writeSettings();
+        this.settingsWriter.writeSettings(guildId);
     }
 
     public void setDefaultPlaylist(String defaultPlaylist) {
         this.defaultPlaylist = defaultPlaylist;
-        this.settingsWriter.writeSettings();
+        this.settingsWriter.writeSettings(guildId);
     }
 
     public void setRepeatMode(RepeatMode mode) {
         this.repeatMode = mode;
-        this.settingsWriter.writeSettings();
+        this.settingsWriter.writeSettings(guildId);
     }
 
     public void setPrefix(String prefix) {
         this.prefix = prefix;
-        this.settingsWriter.writeSettings();
+        this.settingsWriter.writeSettings(guildId);
     }
 
     public void setSkipRatio(double skipRatio) {
         this.skipRatio = skipRatio;
-        this.settingsWriter.writeSettings();
+        this.settingsWriter.writeSettings(guildId);
     }
 
     public void setQueueType(QueueType queueType) {
         this.queueType = queueType;
-        this.settingsWriter.writeSettings();
+        this.settingsWriter.writeSettings(guildId);
     }
 }
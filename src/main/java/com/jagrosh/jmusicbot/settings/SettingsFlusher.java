@@ -0,0 +1,149 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import com.jagrosh.jmusicbot.TaskGroup;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Saves settings behind the changes instead of on every change. A change only
+ * marks its guild dirty and makes sure a flush is scheduled, so a burst of
+ * changes ends up as one save per guild that changed.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class SettingsFlusher
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Settings");
+
+    private final SettingsStore store;
+    private final LongFunction<JSONObject> contents;
+    private final TaskGroup writes;
+    private final long delay;
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    /**
+     * @param store where to save
+     * @param contents gives the current settings of a guild
+     * @param writes runs the flushes
+     * @param delay how long to wait after a change before flushing, in milliseconds
+     */
+    SettingsFlusher(SettingsStore store, LongFunction<JSONObject> contents, TaskGroup writes, long delay)
+    {
+        this.store = store;
+        this.contents = contents;
+        this.writes = writes;
+        this.delay = delay;
+    }
+
+    /**
+     * Notes that the settings of a guild changed, and schedules a flush if
+     * none is pending
+     *
+     * @param guildId the guild
+     */
+    void changed(long guildId)
+    {
+        dirty.add(guildId);
+        schedule();
+    }
+
+    boolean isDirty()
+    {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Stops scheduling flushes, after waiting for one that is running;
+     * {@link #flush()} still saves whatever changes after
+     */
+    synchronized void close()
+    {
+        closed = true;
+    }
+
+    private void schedule()
+    {
+        if(!closed && scheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                writes.schedule(this::scheduledFlush, delay, TimeUnit.MILLISECONDS);
+            }
+            catch(RejectedExecutionException ex)
+            {
+                // shutting down; whatever flushes last picks this up
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Saves every guild that changed since the last flush, and waits until
+     * it is on disk
+     */
+    synchronized void flush() throws IOException
+    {
+        if(dirty.isEmpty())
+            return;
+        List<Long> guilds = new ArrayList<>(dirty);
+        try
+        {
+            for(long guildId : guilds)
+            {
+                // removed first, so a change made while saving marks it again
+                dirty.remove(guildId);
+                store.save(guildId, contents.apply(guildId));
+            }
+            store.flush();
+        }
+        catch(IOException | RuntimeException ex)
+        {
+            dirty.addAll(guilds);
+            throw ex;
+        }
+    }
+
+    private void scheduledFlush()
+    {
+        // changes from here on need another flush, even if they land while this one runs
+        scheduled.set(false);
+        if(closed)
+            return;
+        try
+        {
+            flush();
+        }
+        catch(IOException | RuntimeException ex)
+        {
+            LOG.warn("Failed to save settings, trying again later: " + ex);
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import com.jagrosh.jmusicbot.utils.AppendLog;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import org.json.JSONObject;
+
+/**
+ * A file with a record per settings change of a guild, keyed by the guild id
+ * and holding the settings as JSON. A guild's settings are read from disk the
+ * first time they are asked for. A record without settings means the guild
+ * went back to the defaults.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class SettingsLog implements SettingsStore
+{
+    private final static int COMPACT_MIN = 64 * 1024; // don't bother rewriting smaller files
+
+    private final AppendLog<Long> log;
+
+    /**
+     * Opens the log, creating the file if needed
+     *
+     * @param path the file
+     * @throws IOException if the file can't be opened
+     */
+    SettingsLog(Path path) throws IOException
+    {
+        // settings don't go stale
+        this.log = new AppendLog<>(path, AppendLog.LONG_KEYS, Long.MAX_VALUE, System::currentTimeMillis, COMPACT_MIN);
+    }
+
+    /**
+     * Creates a log from the settings file of older versions. The log only
+     * appears once it is complete, so an import cut short is simply done
+     * again on the next start.
+     *
+     * @param json the old settings file
+     * @param path the log to create
+     */
+    static void importJson(Path json, Path path) throws IOException
+    {
+        JSONObject loaded = new JSONObject(new String(Files.readAllBytes(json)));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        try(SettingsLog log = new SettingsLog(temp))
+        {
+            for(String id : loaded.keySet())
+            {
+                long guildId;
+                try
+                {
+                    guildId = Long.parseLong(id);
+                }
+                catch(NumberFormatException ex)
+                {
+                    continue;
+                }
+                JSONObject o = loaded.getJSONObject(id);
+
+                // Legacy version support: On versions 0.3.3 and older, the repeat mode was represented as a boolean.
+                if(!o.has("repeat_mode") && o.has("repeat") && o.getBoolean("repeat"))
+                    o.put("repeat_mode", RepeatMode.ALL);
+                o.remove("repeat");
+
+                if(o.length() > 0)
+                    log.save(guildId, o);
+            }
+            log.flush();
+        }
+        try
+        {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException ex)
+        {
+            Files.move(temp, path);
+        }
+    }
+
+    @Override
+    public JSONObject load(long guildId) throws IOException
+    {
+        AppendLog.Stored stored = log.get(guildId);
+        return stored == null ? null : new JSONObject(new String(stored.getData(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void save(long guildId, JSONObject settings) throws IOException
+    {
+        log.put(guildId, settings.length() == 0 ? new byte[0] : settings.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        log.force();
+    }
+
+    @Override
+    public int size()
+    {
+        return log.size();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        log.close();
+    }
+}
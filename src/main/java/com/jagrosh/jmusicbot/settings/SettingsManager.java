@@ -16,11 +16,12 @@
 package com.jagrosh.jmusicbot.settings;
 
 import com.jagrosh.jdautilities.command.GuildSettingsManager;
+import com.jagrosh.jmusicbot.Scheduler;
+import com.jagrosh.jmusicbot.utils.ConcurrentLongMap;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
-import java.util.HashMap;
+import java.nio.file.Path;
 import net.dv8tion.jda.api.entities.Guild;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -34,8 +35,12 @@ import org.slf4j.LoggerFactory;
 public class SettingsManager implements GuildSettingsManager<Settings>, SettingsWriter
 {
     private final static Logger LOG = LoggerFactory.getLogger("Settings");
-    private final static String SETTINGS_FILE = "serversettings.json";
-    private final HashMap<Long,Settings> settings;
+    private final static String SETTINGS_FILE = "serversettings.json"; // used before the log, only imported now
+    private final static String STORE_FILE = "serversettings.log";
+    private final static long WRITE_DELAY = 5000; // milliseconds
+    private final ConcurrentLongMap<Settings> settings;
+    private final SettingsStore store;
+    private final SettingsFlusher flusher;
 
     private static SettingsManager settingsManager;
     public static SettingsManager getInstance(){
@@ -45,36 +50,42 @@ public class SettingsManager implements GuildSettingsManager<Settings>, Settings
         return settingsManager;
     }
 
+    public static boolean hasInstance(){
+        return settingsManager != null;
+    }
+
     private SettingsManager()
     {
-        this.settings = new HashMap<>();
-
-        try {
-            JSONObject loadedSettings = new JSONObject(new String(Files.readAllBytes(OtherUtil.getPath(SETTINGS_FILE))));
-            loadedSettings.keySet().forEach((id) -> {
-                JSONObject o = loadedSettings.getJSONObject(id);
-
-                // Legacy version support: On versions 0.3.3 and older, the repeat mode was represented as a boolean.
-                if (!o.has("repeat_mode") && o.has("repeat") && o.getBoolean("repeat"))
-                    o.put("repeat_mode", RepeatMode.ALL);
-
+        // read on every command and track end, from JDA, lavaplayer and the writer thread
+        this.settings = new ConcurrentLongMap<>();
+        this.store = openStore();
+        this.flusher = new SettingsFlusher(store, id -> buildSettingsJson(settings.get(id)),
+                Scheduler.getInstance().group("settings", true), WRITE_DELAY);
+        // in case the process is stopped without going through Bot.shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "settings-flush"));
+    }
 
-                settings.put(Long.parseLong(id), new Settings(this, o));
-            });
-        } catch (NoSuchFileException e) {
-            // create an empty json file
+    private static SettingsStore openStore()
+    {
+        Path path = OtherUtil.getPath(STORE_FILE);
+        Path legacy = OtherUtil.getPath(SETTINGS_FILE);
+        if(!Files.exists(path) && Files.exists(legacy))
+        {
             try {
-                LOG.info("serversettings.json will be created in " + OtherUtil.getPath("serversettings.json").toAbsolutePath());
-                Files.write(OtherUtil.getPath("serversettings.json"), new JSONObject().toString(4).getBytes());
-            } catch(IOException ex) {
-                LOG.warn("Failed to create new settings file: "+ex);
+                SettingsLog.importJson(legacy, path);
+                LOG.info("Imported " + SETTINGS_FILE + " into " + path.toAbsolutePath());
+            } catch(IOException | JSONException e) {
+                LOG.warn("Failed to import " + SETTINGS_FILE + ": " + e);
             }
-            return;
-        } catch(IOException | JSONException e) {
-            LOG.warn("Failed to load server settings: "+e);
         }
-
-        LOG.info("serversettings.json loaded from " + OtherUtil.getPath("serversettings.json").toAbsolutePath());
+        try {
+            SettingsLog log = new SettingsLog(path);
+            LOG.info("Server settings of " + log.size() + " servers found in " + path.toAbsolutePath());
+            return log;
+        } catch(IOException e) {
+            LOG.warn("Failed to load server settings, changes won't be saved: " + e);
+            return new TransientStore();
+        }
     }
 
     /**
@@ -91,29 +102,55 @@ public class SettingsManager implements GuildSettingsManager<Settings>, Settings
 
     public Settings getSettings(long guildId)
     {
-        return settings.computeIfAbsent(guildId, id -> createDefaultSettings());
+        return settings.computeIfAbsent(guildId, this::loadSettings);
     }
 
-    private Settings createDefaultSettings()
+    // a guild's settings are only read from the store the first time they're needed
+    private Settings loadSettings(long guildId)
     {
-        return new Settings(this);
+        try {
+            JSONObject o = store.load(guildId);
+            if (o != null)
+                return new Settings(this, guildId, o);
+        } catch (IOException | JSONException e) {
+            LOG.warn("Failed to load settings of server " + guildId + ": " + e);
+        }
+        return new Settings(this, guildId);
     }
 
+    /**
+     * Marks the settings of a guild as changed. They are saved a few seconds
+     * later, together with whatever else changes meanwhile.
+     */
     @Override
-    public void writeSettings() {
-        JSONObject obj = new JSONObject();
-        settings.forEach((key, s) -> {
-            JSONObject settingsJson = buildSettingsJson(s);
-            obj.put(Long.toString(key), settingsJson);
-        });
+    public void writeSettings(long guildId) {
+        flusher.changed(guildId);
+    }
 
+    /**
+     * Saves any changes that weren't saved yet, and waits for it
+     */
+    public void flush() {
         try {
-            Files.write(OtherUtil.getPath(SETTINGS_FILE), obj.toString(4).getBytes());
-        } catch (IOException ex) {
-            LOG.warn("Failed to write to file: " + ex);
+            flusher.flush();
+        } catch (IOException | RuntimeException ex) {
+            LOG.warn("Failed to save settings: " + ex);
         }
     }
 
+    /**
+     * Saves any pending changes and stops scheduling writes. Must come before
+     * the scheduler is stopped, since interrupting a write would close the
+     * store's file under it.
+     */
+    public void shutdown() {
+        flusher.close();
+        flush();
+        try {
+            store.close();
+        } catch (IOException ignore) {}
+    }
+
     private JSONObject buildSettingsJson(Settings s) {
         JSONObject o = new JSONObject();
 
@@ -129,4 +166,23 @@ public class SettingsManager implements GuildSettingsManager<Settings>, Settings
 
         return o;
     }
+
+    // used when the log can't be opened, so the bot still runs
+    private static class TransientStore implements SettingsStore
+    {
+        @Override
+        public JSONObject load(long guildId) { return null; }
+
+        @Override
+        public void save(long guildId, JSONObject settings) {}
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public int size() { return 0; }
+
+        @Override
+        public void close() {}
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.json.JSONObject;
+
+/**
+ * Keeps the settings of each guild between restarts, one guild at a time
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+interface SettingsStore extends Closeable
+{
+    /**
+     * @param guildId the guild
+     * @return its stored settings, or null if it has none
+     */
+    JSONObject load(long guildId) throws IOException;
+
+    /**
+     * Replaces the stored settings of a guild. They may not be safe from a
+     * crash until the next {@link #flush()}.
+     *
+     * @param guildId the guild
+     * @param settings its settings; empty to forget the guild
+     */
+    void save(long guildId, JSONObject settings) throws IOException;
+
+    /**
+     * Makes sure everything saved so far survives a crash
+     */
+    void flush() throws IOException;
+
+    /**
+     * @return the number of guilds with stored settings
+     */
+    int size();
+}
@@ -1,5 +1,5 @@
 package com.jagrosh.jmusicbot.settings;
 
 public interface SettingsWriter {
-    void writeSettings();
+    void writeSettings(long guildId);
 }
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * A file of keyed records that is only ever appended to. Only an index of
+ * where each key's latest record starts is kept in memory; the data is read
+ * from disk when asked for. A record with no data removes its key. Records
+ * older than the maximum age are ignored, and the file is rewritten without
+ * dead records once most of it is dead.
+ *
+ * The file starts with a magic number. Each record is its length and a CRC32
+ * of the rest, then the key, the time it was written and the data. Opening
+ * the file drops everything from the first record that is cut off or doesn't
+ * match its checksum, which is what a crash while appending leaves behind.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ * @param <K> the type of keys
+ */
+public class AppendLog<K> implements Closeable
+{
+    private final static int MAGIC = 0x4A4D4C31; // "JML1"
+    private final static int HEADER = 8; // length and checksum of a record
+
+    /**
+     * Writes and reads the keys of a log
+     *
+     * @param <K> the type of keys
+     */
+    public interface KeyCodec<K>
+    {
+        void write(DataOutput out, K key) throws IOException;
+
+        K read(DataInput in) throws IOException;
+    }
+
+    public final static KeyCodec<String> STRING_KEYS = new KeyCodec<String>()
+    {
+        @Override
+        public void write(DataOutput out, String key) throws IOException
+        {
+            out.writeUTF(key);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException
+        {
+            return in.readUTF();
+        }
+    };
+
+    public final static KeyCodec<Long> LONG_KEYS = new KeyCodec<Long>()
+    {
+        @Override
+        public void write(DataOutput out, Long key) throws IOException
+        {
+            out.writeLong(key);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException
+        {
+            return in.readLong();
+        }
+    };
+
+    private final Path path;
+    private final KeyCodec<K> codec;
+    private final long maxAge;
+    private final LongSupplier clock;
+    private final long compactMin;
+    private final Map<K, Record> index = new HashMap<>();
+    private FileChannel channel;
+    private boolean closed = false;
+    private long end = 0, live = 0;
+
+    /**
+     * Opens the log, creating the file if needed
+     *
+     * @param path the file
+     * @param codec writes and reads the keys
+     * @param maxAge how long a record is used after it was written, in milliseconds
+     * @param clock gives the current time, in milliseconds
+     * @param compactMin the size below which the file is never rewritten, in bytes
+     * @throws IOException if the file can't be opened, or isn't a log
+     */
+    public AppendLog(Path path, KeyCodec<K> codec, long maxAge, LongSupplier clock, long compactMin) throws IOException
+    {
+        this.path = path;
+        this.codec = codec;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.compactMin = compactMin;
+        open();
+        if(end > compactMin && end > 2 * live)
+            compact();
+    }
+
+    /**
+     * @param key the key
+     * @return the latest record of the key, or null if there is none or it is too old
+     */
+    public synchronized Stored get(K key) throws IOException
+    {
+        Record record = index.get(key);
+        if(record == null)
+            return null;
+        if(isExpired(record, clock.getAsLong()))
+        {
+            index.remove(key);
+            live -= HEADER + record.length;
+            return null;
+        }
+        ensureOpen();
+        byte[] data = read(record.offset + HEADER + record.dataStart, record.length - record.dataStart);
+        return new Stored(data, record.written);
+    }
+
+    /**
+     * Appends a record for a key, replacing any record before it
+     *
+     * @param key the key
+     * @param data the data, or an empty array to remove the key
+     */
+    public synchronized void put(K key, byte[] data) throws IOException
+    {
+        ensureOpen();
+        long written = clock.getAsLong();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(0);
+        codec.write(out, key);
+        out.writeLong(written);
+        int dataStart = out.size() - HEADER;
+        out.write(data);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        int length = buffer.limit() - HEADER;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER, length);
+        buffer.putInt(0, length);
+        buffer.putInt(4, (int) crc.getValue());
+        long offset = end;
+        try
+        {
+            while(buffer.hasRemaining())
+                end += channel.write(buffer, end);
+        }
+        catch(IOException ex)
+        {
+            // what was written of it would hide everything appended after it
+            end = offset;
+            if(channel.isOpen())
+                channel.truncate(offset);
+            throw ex;
+        }
+        Record old = data.length == 0
+                ? index.remove(key)
+                : index.put(key, new Record(offset, length, dataStart, written));
+        if(old != null)
+            live -= HEADER + old.length;
+        if(data.length > 0)
+            live += HEADER + length;
+        if(end > compactMin && end > 2 * live)
+            compact();
+    }
+
+    /**
+     * Waits until everything appended so far is on disk
+     */
+    public synchronized void force() throws IOException
+    {
+        ensureOpen();
+        channel.force(false);
+    }
+
+    /**
+     * @return the number of keys with a record
+     */
+    public synchronized int size()
+    {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        closed = true;
+        channel.close();
+    }
+
+    private boolean isExpired(Record record, long now)
+    {
+        return now - record.written >= maxAge;
+    }
+
+    // an interrupt during a read or write closes the channel, for every thread
+    private void ensureOpen() throws IOException
+    {
+        if(closed)
+            throw new ClosedChannelException();
+        if(!channel.isOpen())
+            open();
+    }
+
+    private void open() throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        live = 0;
+        if(channel.size() < 4)
+        {
+            ByteBuffer magic = ByteBuffer.allocate(4).putInt(0, MAGIC);
+            channel.truncate(0);
+            while(magic.hasRemaining())
+                channel.write(magic, magic.position());
+            end = 4;
+            return;
+        }
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        readFully(magic, 0);
+        if(magic.getInt(0) != MAGIC)
+        {
+            channel.close();
+            throw new IOException(path + " is not a log of this version");
+        }
+        scan();
+    }
+
+    private void scan() throws IOException
+    {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        CRC32 crc = new CRC32();
+        long offset = 4;
+        while(offset + HEADER <= size)
+        {
+            header.clear();
+            readFully(header, offset);
+            int length = header.getInt(0);
+            if(length < 8 || offset + HEADER + length > size)
+                break; // cut off by a crash while appending
+            byte[] body = read(offset + HEADER, length);
+            crc.reset();
+            crc.update(body);
+            if((int) crc.getValue() != header.getInt(4))
+                break; // torn on the way to disk
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            K key = codec.read(in);
+            long written = in.readLong();
+            int dataStart = length - in.available();
+            Record old = dataStart == length
+                    ? index.remove(key)
+                    : index.put(key, new Record(offset, length, dataStart, written));
+            if(old != null)
+                live -= HEADER + old.length;
+            if(dataStart < length)
+                live += HEADER + length;
+            offset += HEADER + length;
+        }
+        if(offset < size)
+            channel.truncate(offset);
+        end = offset;
+    }
+
+    private void compact() throws IOException
+    {
+        long now = clock.getAsLong();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Map<K, Record> compacted = new HashMap<>();
+        long offset = 4;
+        try(FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer magic = ByteBuffer.allocate(4).putInt(0, MAGIC);
+            while(magic.hasRemaining())
+                out.write(magic);
+            for(Map.Entry<K, Record> e : index.entrySet())
+            {
+                Record record = e.getValue();
+                if(isExpired(record, now))
+                    continue;
+                // copied as it is, checksum and all
+                ByteBuffer buffer = ByteBuffer.wrap(read(record.offset, HEADER + record.length));
+                while(buffer.hasRemaining())
+                    out.write(buffer);
+                compacted.put(e.getKey(), new Record(offset, record.length, record.dataStart, record.written));
+                offset += HEADER + record.length;
+            }
+            out.force(true);
+        }
+        channel.close();
+        try
+        {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException ex)
+        {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally
+        {
+            // if the move failed, the old file and index are still good
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        index.clear();
+        index.putAll(compacted);
+        end = offset;
+        live = offset - 4;
+    }
+
+    private byte[] read(long offset, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(buffer, offset);
+        return buffer.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException
+    {
+        while(buffer.hasRemaining())
+        {
+            int read = channel.read(buffer, offset + buffer.position());
+            if(read < 0)
+                throw new IOException("Unexpected end of " + path);
+        }
+    }
+
+    /**
+     * The data of a record, and when it was written
+     */
+    public static class Stored
+    {
+        private final byte[] data;
+        private final long written;
+
+        private Stored(byte[] data, long written)
+        {
+            this.data = data;
+            this.written = written;
+        }
+
+        public byte[] getData()
+        {
+            return data;
+        }
+
+        /**
+         * @return when the record was written, in milliseconds
+         */
+        public long getWritten()
+        {
+            return written;
+        }
+    }
+
+    private static class Record
+    {
+        private final long offset; // of the length
+        private final int length; // of what comes after the checksum
+        private final int dataStart; // within that, where the data starts
+        private final long written;
+
+        private Record(long offset, int length, int dataStart, long written)
+        {
+            this.offset = offset;
+            this.length = length;
+            this.dataStart = dataStart;
+            this.written = written;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+/**
+ * A map from primitive longs, like Discord ids, that only grows. Lookups take
+ * no lock and box nothing; they probe an open-addressing table of immutable
+ * entries. Adding takes a lock, and the table is replaced by a bigger copy
+ * when it gets half full, so a lookup racing with that simply finds what was
+ * there before and falls back to the lock.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ * @param <V> the type of values
+ */
+public class ConcurrentLongMap<V>
+{
+    private final static int MIN_CAPACITY = 16;
+
+    private volatile AtomicReferenceArray<Entry<V>> table;
+    private volatile int size = 0;
+
+    public ConcurrentLongMap()
+    {
+        this.table = new AtomicReferenceArray<>(MIN_CAPACITY);
+    }
+
+    /**
+     * @param key the key
+     * @return the value for the key, or null if there is none
+     */
+    public V get(long key)
+    {
+        AtomicReferenceArray<Entry<V>> t = table;
+        int mask = t.length() - 1;
+        for(int i = hash(key) & mask; ; i = (i + 1) & mask)
+        {
+            Entry<V> e = t.get(i);
+            if(e == null)
+                return null;
+            if(e.key == key)
+                return e.value;
+        }
+    }
+
+    /**
+     * Gets the value for a key, creating it if there is none. The function is
+     * called at most once per key, while holding this map's lock.
+     *
+     * @param key the key
+     * @param function creates the value for the key
+     * @return the existing or created value
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> function)
+    {
+        V value = get(key);
+        if(value != null)
+            return value;
+        synchronized(this)
+        {
+            value = get(key);
+            if(value != null)
+                return value;
+            value = function.apply(key);
+            if(value == null)
+                return null;
+            if((size + 1) * 2 > table.length())
+                table = grow(table);
+            insert(table, new Entry<>(key, value));
+            size++;
+            return value;
+        }
+    }
+
+    /**
+     * @return the number of keys
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    private static <V> AtomicReferenceArray<Entry<V>> grow(AtomicReferenceArray<Entry<V>> old)
+    {
+        AtomicReferenceArray<Entry<V>> bigger = new AtomicReferenceArray<>(old.length() * 2);
+        for(int i = 0; i < old.length(); i++)
+        {
+            Entry<V> e = old.get(i);
+            if(e != null)
+                insert(bigger, e);
+        }
+        return bigger;
+    }
+
+    private static <V> void insert(AtomicReferenceArray<Entry<V>> t, Entry<V> entry)
+    {
+        int mask = t.length() - 1;
+        int i = hash(entry.key) & mask;
+        while(t.get(i) != null)
+            i = (i + 1) & mask;
+        t.set(i, entry);
+    }
+
+    // snowflakes mostly differ in their high bits, but the table is indexed by the low ones
+    private static int hash(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static class Entry<V>
+    {
+        private final long key;
+        private final V value;
+
+        private Entry(long key, V value)
+        {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
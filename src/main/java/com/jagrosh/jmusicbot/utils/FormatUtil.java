@@ -50,17 +50,29 @@ public class FormatUtil {
         return formatUsername(user.getName(), user.getDiscriminator());
     }
 
+    public final static int PROGRESS_CELLS = 12;
+
     public static String progressBar(double percent)
     {
         String str = "";
-        for(int i=0; i<12; i++)
-            if(i == (int)(percent*12))
+        int cell = progressCell(percent);
+        for(int i=0; i<PROGRESS_CELLS; i++)
+            if(i == cell)
                 str+="\uD83D\uDD18"; // 🔘
             else
                 str+="▬";
         return str;
     }
     
+    /**
+     * @param percent how far along, from 0 to 1
+     * @return the cell of the progress bar that is marked, out of {@link #PROGRESS_CELLS}
+     */
+    public static int progressCell(double percent)
+    {
+        return (int)(percent*PROGRESS_CELLS);
+    }
+    
     public static String volumeIcon(int volume)
     {
         if(volume == 0)
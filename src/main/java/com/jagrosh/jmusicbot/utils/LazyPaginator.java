@@ -0,0 +1,224 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import com.jagrosh.jdautilities.commons.waiter.EventWaiter;
+import java.awt.Color;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.MessageBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
+import net.dv8tion.jda.api.exceptions.PermissionException;
+
+/**
+ * A reaction paginator that looks like the JDA-Utilities one, but asks for the
+ * items of a page only when that page is shown, instead of needing every item
+ * formatted up front.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class LazyPaginator
+{
+    public static final String LEFT = "\u25C0"; // ◀
+    public static final String STOP = "\u23F9"; // ⏹
+    public static final String RIGHT = "\u25B6"; // ▶
+
+    private final EventWaiter waiter;
+    private final Set<Long> users;
+    private final long timeout;
+    private final TimeUnit unit;
+    private final int itemsPerPage;
+    private final int count;
+    private final IntFunction<String> items;
+    private final BiFunction<Integer, Integer, String> text;
+    private final Color color;
+    private final Consumer<Message> finalAction;
+    private final int pages;
+
+    private LazyPaginator(Builder builder)
+    {
+        this.waiter = builder.waiter;
+        this.users = new HashSet<>(builder.users);
+        this.timeout = builder.timeout;
+        this.unit = builder.unit;
+        this.itemsPerPage = builder.itemsPerPage;
+        this.count = builder.count;
+        this.items = builder.items;
+        this.text = builder.text;
+        this.color = builder.color;
+        this.finalAction = builder.finalAction;
+        this.pages = Math.max(1, (count + itemsPerPage - 1) / itemsPerPage);
+    }
+
+    public void paginate(MessageChannel channel, int pageNum)
+    {
+        int page = Math.min(Math.max(pageNum, 1), pages);
+        channel.sendMessage(renderPage(page)).queue(m ->
+        {
+            if(pages == 1)
+            {
+                // nothing to turn to, so it is done right away
+                finalAction.accept(m);
+                return;
+            }
+            try
+            {
+                m.addReaction(LEFT).queue();
+                m.addReaction(STOP).queue();
+                // without the reactions there are no pages to turn, so it is done
+                m.addReaction(RIGHT).queue(v -> waitForReaction(m, page), t -> finalAction.accept(m));
+            }
+            catch(PermissionException ex)
+            {
+                finalAction.accept(m);
+            }
+        });
+    }
+
+    private void waitForReaction(Message message, int page)
+    {
+        waiter.waitForEvent(MessageReactionAddEvent.class, event -> isPageTurn(event, message), event ->
+        {
+            String emoji = event.getReactionEmote().getName();
+            if(STOP.equals(emoji))
+            {
+                finalAction.accept(message);
+                return;
+            }
+            int next = LEFT.equals(emoji) ? (page == 1 ? pages : page - 1) : (page == pages ? 1 : page + 1);
+            try
+            {
+                if(event.getUser() != null)
+                    event.getReaction().removeReaction(event.getUser()).queue();
+            }
+            catch(PermissionException ignore) {}
+            // a message that can't be edited, for one because it was deleted, is done
+            message.editMessage(renderPage(next)).queue(m -> waitForReaction(m, next), t -> finalAction.accept(message));
+        }, timeout, unit, () -> finalAction.accept(message));
+    }
+
+    private boolean isPageTurn(MessageReactionAddEvent event, Message message)
+    {
+        if(event.getMessageIdLong() != message.getIdLong() || !users.contains(event.getUserIdLong()))
+            return false;
+        if(!event.getReactionEmote().isEmoji())
+            return false;
+        String emoji = event.getReactionEmote().getName();
+        return LEFT.equals(emoji) || STOP.equals(emoji) || RIGHT.equals(emoji);
+    }
+
+    private Message renderPage(int page)
+    {
+        StringBuilder sb = new StringBuilder();
+        int end = Math.min(count, page * itemsPerPage);
+        for(int i = (page - 1) * itemsPerPage; i < end; i++)
+            sb.append("\n`").append(i + 1).append(".` ").append(items.apply(i));
+        EmbedBuilder eb = new EmbedBuilder()
+                .setDescription(sb.toString())
+                .setColor(color)
+                .setFooter("Page " + page + "/" + pages, null);
+        MessageBuilder mb = new MessageBuilder().setEmbeds(eb.build());
+        if(text != null)
+            mb.append(text.apply(page, pages));
+        return mb.build();
+    }
+
+    public static class Builder
+    {
+        private EventWaiter waiter;
+        private final Set<Long> users = new HashSet<>();
+        private long timeout = 1;
+        private TimeUnit unit = TimeUnit.MINUTES;
+        private int itemsPerPage = 10;
+        private int count = 0;
+        private IntFunction<String> items = i -> "";
+        private BiFunction<Integer, Integer, String> text;
+        private Color color;
+        private Consumer<Message> finalAction = m -> {};
+
+        public Builder setEventWaiter(EventWaiter waiter)
+        {
+            this.waiter = waiter;
+            return this;
+        }
+
+        public Builder setUsers(User... users)
+        {
+            this.users.clear();
+            for(User user : users)
+                this.users.add(user.getIdLong());
+            return this;
+        }
+
+        public Builder setTimeout(long timeout, TimeUnit unit)
+        {
+            this.timeout = timeout;
+            this.unit = unit;
+            return this;
+        }
+
+        public Builder setItemsPerPage(int itemsPerPage)
+        {
+            this.itemsPerPage = itemsPerPage;
+            return this;
+        }
+
+        /**
+         * @param count the number of items
+         * @param items renders the item at an index; only called for the page being shown
+         * @return this builder
+         */
+        public Builder setItems(int count, IntFunction<String> items)
+        {
+            this.count = count;
+            this.items = items;
+            return this;
+        }
+
+        public Builder setText(BiFunction<Integer, Integer, String> text)
+        {
+            this.text = text;
+            return this;
+        }
+
+        public Builder setColor(Color color)
+        {
+            this.color = color;
+            return this;
+        }
+
+        public Builder setFinalAction(Consumer<Message> finalAction)
+        {
+            this.finalAction = finalAction;
+            return this;
+        }
+
+        public LazyPaginator build()
+        {
+            if(waiter == null)
+                throw new IllegalArgumentException("Must set an EventWaiter");
+            return new LazyPaginator(this);
+        }
+    }
+}
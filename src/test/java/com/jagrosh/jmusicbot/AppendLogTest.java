@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.utils.AppendLog;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class AppendLogTest
+{
+    private final AtomicLong clock = new AtomicLong(1000);
+    private Path dir, file;
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory("appendlog");
+        file = dir.resolve("log.bin");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException
+    {
+        for(Path path : Files.list(dir).toArray(Path[]::new))
+            Files.delete(path);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void keepsWhenRecordsWereWritten() throws IOException
+    {
+        try(AppendLog<Long> log = open())
+        {
+            log.put(1L, new byte[]{1});
+            clock.addAndGet(300);
+            log.put(2L, new byte[]{2});
+        }
+        try(AppendLog<Long> log = open())
+        {
+            assertEquals(1000, log.get(1L).getWritten());
+            assertEquals(1300, log.get(2L).getWritten());
+            assertArrayEquals(new byte[]{2}, log.get(2L).getData());
+        }
+    }
+
+    @Test
+    public void emptyDataRemovesTheKey() throws IOException
+    {
+        try(AppendLog<Long> log = open())
+        {
+            log.put(1L, new byte[]{1});
+            log.put(1L, new byte[0]);
+            assertNull(log.get(1L));
+        }
+        try(AppendLog<Long> log = open())
+        {
+            assertEquals(0, log.size());
+            assertNull(log.get(1L));
+        }
+    }
+
+    @Test
+    public void tornRecordIsDropped() throws IOException
+    {
+        try(AppendLog<Long> log = open())
+        {
+            log.put(1L, new byte[]{1, 2, 3});
+            log.put(2L, new byte[]{4, 5, 6});
+        }
+        // the length made it to disk, but not all of the data
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            channel.write(ByteBuffer.wrap(new byte[]{0}), channel.size() - 1);
+        }
+        try(AppendLog<Long> log = open())
+        {
+            assertArrayEquals(new byte[]{1, 2, 3}, log.get(1L).getData());
+            assertNull(log.get(2L));
+            log.put(3L, new byte[]{7});
+        }
+        try(AppendLog<Long> log = open())
+        {
+            assertEquals(2, log.size());
+            assertArrayEquals(new byte[]{7}, log.get(3L).getData());
+        }
+    }
+
+    @Test
+    public void otherFilesAreLeftAlone() throws IOException
+    {
+        Files.write(file, "{\"1\": {}}".getBytes());
+        assertThrows(IOException.class, () -> open());
+        assertArrayEquals("{\"1\": {}}".getBytes(), Files.readAllBytes(file));
+    }
+
+    @Test
+    public void reopensAfterTheChannelWasClosedUnderIt() throws IOException, InterruptedException
+    {
+        try(AppendLog<Long> log = open())
+        {
+            log.put(1L, new byte[]{1});
+            // an interrupted write closes the channel for everyone
+            Thread writer = new Thread(() ->
+            {
+                Thread.currentThread().interrupt();
+                try
+                {
+                    log.put(2L, new byte[]{2});
+                }
+                catch(IOException ex)
+                {
+                    // expected
+                }
+            });
+            writer.start();
+            writer.join();
+            log.put(3L, new byte[]{3});
+            assertArrayEquals(new byte[]{1}, log.get(1L).getData());
+            assertArrayEquals(new byte[]{3}, log.get(3L).getData());
+        }
+    }
+
+    @Test
+    public void closedLogStaysClosed() throws IOException
+    {
+        AppendLog<Long> log = open();
+        log.close();
+        assertThrows(ClosedChannelException.class, () -> log.put(1L, new byte[]{1}));
+    }
+
+    private AppendLog<Long> open() throws IOException
+    {
+        return new AppendLog<>(file, AppendLog.LONG_KEYS, 1000, clock::get, 1024);
+    }
+}
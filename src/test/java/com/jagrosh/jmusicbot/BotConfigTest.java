@@ -473,6 +473,13 @@ class BotConfigTest {
         assertTrue(bc.useNPImages());
     }
 
+    @Test
+    void testGetNPTimeStep() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "npTimeStep", 10L);
+        assertEquals(10L, bc.getNPTimeStep());
+    }
+
     @Test
     void testGetMaxSeconds() throws Exception {
         BotConfig bc = minimalValidBotConfig();
@@ -509,6 +516,96 @@ class BotConfigTest {
         assertSame(mockTransforms, bc.getTransforms());
     }
 
+    @Test
+    void testGetJitterBuffer_default() {
+        assertEquals(0, referenceBotConfig().getJitterBuffer());
+    }
+
+    @Test
+    void testGetJitterBuffer_value() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "jitterBuffer", 60);
+        assertEquals(60, bc.getJitterBuffer());
+    }
+
+    @Test
+    void testGetJitterBuffer_negative() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "jitterBuffer", -20);
+        assertEquals(0, bc.getJitterBuffer());
+    }
+
+    @Test
+    void testGetPlaylistConcurrency_default() {
+        assertEquals(4, referenceBotConfig().getPlaylistConcurrency());
+    }
+
+    @Test
+    void testGetPlaylistConcurrency_value() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "playlistConcurrency", 8);
+        assertEquals(8, bc.getPlaylistConcurrency());
+    }
+
+    @Test
+    void testGetPlaylistConcurrency_atLeastOne() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "playlistConcurrency", 0);
+        assertEquals(1, bc.getPlaylistConcurrency());
+    }
+
+    @Test
+    void testGetPlaylistWindow_default() {
+        assertEquals(0, referenceBotConfig().getPlaylistWindow());
+    }
+
+    @Test
+    void testGetPlaylistWindow_value() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "playlistWindow", 50);
+        assertEquals(50, bc.getPlaylistWindow());
+    }
+
+    @Test
+    void testGetPlaylistWindow_negative() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "playlistWindow", -5);
+        assertEquals(0, bc.getPlaylistWindow());
+    }
+
+    @Test
+    void testGetThreads_default() {
+        BotConfig bc = referenceBotConfig();
+        assertEquals(2, bc.getTimerThreads());
+        assertEquals(8, bc.getBlockingThreads());
+        assertFalse(bc.useVirtualThreads());
+    }
+
+    @Test
+    void testGetTimerThreads() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "timerThreads", 3);
+        assertEquals(3, bc.getTimerThreads());
+        setPrivateField(bc, "timerThreads", 0);
+        assertEquals(1, bc.getTimerThreads());
+    }
+
+    @Test
+    void testGetBlockingThreads() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "blockingThreads", 16);
+        assertEquals(16, bc.getBlockingThreads());
+        setPrivateField(bc, "blockingThreads", -1);
+        assertEquals(1, bc.getBlockingThreads());
+    }
+
+    @Test
+    void testUseVirtualThreads() throws Exception {
+        BotConfig bc = minimalValidBotConfig();
+        setPrivateField(bc, "virtualThreads", true);
+        assertTrue(bc.useVirtualThreads());
+    }
+
     @Test
     void testWriteDefaultConfig_mocked() {
         try (MockedConstruction<Prompt> promptConstruction = mockConstruction(Prompt.class)) {
@@ -574,6 +671,16 @@ class BotConfigTest {
         }
     }
 
+    private BotConfig referenceBotConfig() {
+        Config reference = ConfigFactory.parseMap(Map.of("token", "token_ok", "owner", 123L))
+                .withFallback(ConfigFactory.parseResources("reference.conf"))
+                .resolve();
+        try (MockedStatic<ConfigFactory> cf = mockStatic(ConfigFactory.class)) {
+            cf.when(ConfigFactory::load).thenReturn(reference);
+            return BotConfig.createConfig(mockPrompt);
+        }
+    }
+
     private void setPrivateField(BotConfig cfg, String fieldName, Object value) throws Exception {
         Field f = BotConfig.class.getDeclaredField(fieldName);
         f.setAccessible(true);
@@ -14,7 +14,6 @@ import org.junit.jupiter.api.*;
 import org.mockito.MockedStatic;
 
 import java.util.List;
-import java.util.concurrent.ScheduledExecutorService;
 
 import static com.github.stefanbirkner.systemlambda.SystemLambda.catchSystemExit;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -22,8 +21,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 public class BotTest {
-    private static MockedStatic<ScheduledExecutorServiceProvider> executorStaticMock;
-    private static ScheduledExecutorService executor;
+    private static MockedStatic<Scheduler> schedulerStaticMock;
+    private static Scheduler scheduler;
+    private static TaskGroup connections;
     private static MockedStatic<BotConfig> configStaticMock;
     private static MockedStatic<SettingsManager> settingsManagerStaticMock;
     private static MockedStatic<JDAProvider> jdaProviderMockedStatic;
@@ -34,9 +34,11 @@ public class BotTest {
 
     @BeforeAll
     public static void beforeClass() {
-        executorStaticMock = mockStatic(ScheduledExecutorServiceProvider.class);
-        executor = mock(ScheduledExecutorService.class);
-        executorStaticMock.when(ScheduledExecutorServiceProvider::getInstance).thenReturn(executor);
+        schedulerStaticMock = mockStatic(Scheduler.class);
+        scheduler = mock(Scheduler.class);
+        connections = mock(TaskGroup.class);
+        when(scheduler.group(anyString(), anyBoolean())).thenReturn(connections);
+        schedulerStaticMock.when(Scheduler::getInstance).thenReturn(scheduler);
         configStaticMock = mockStatic(BotConfig.class);
         settingsManagerStaticMock = mockStatic(SettingsManager.class);
         jdaProviderMockedStatic  = mockStatic(JDAProvider.class);
@@ -56,7 +58,7 @@ public class BotTest {
 
     @AfterAll
     public static void afterClass() {
-        executorStaticMock.close();
+        schedulerStaticMock.close();
         configStaticMock.close();
         settingsManagerStaticMock.close();
         jdaProviderMockedStatic.close();
@@ -80,7 +82,7 @@ public class BotTest {
         Bot bot = Bot.getInstance();
         bot.closeAudioConnection(1);
 
-        verify(executor).submit(any(Runnable.class));
+        verify(connections).submit(any(Runnable.class));
     }
 
     @Test
@@ -91,7 +93,7 @@ public class BotTest {
             Bot bot = Bot.getInstance();
             bot.closeAudioConnection(1);
 
-            verify(executor, never()).submit(any(Runnable.class));
+            verify(connections, never()).submit(any(Runnable.class));
     }
 
     @Test
@@ -155,7 +157,7 @@ public class BotTest {
         bot.setShutdownFlag(true);
         bot.shutdown();
 
-        verify(executor, never()).shutdownNow();
+        verify(scheduler, never()).shutdownNow();
         verifyNoInteractions(jdaProvider);
     }
 
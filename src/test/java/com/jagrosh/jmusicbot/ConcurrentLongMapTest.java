@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.utils.ConcurrentLongMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ConcurrentLongMapTest
+{
+    // guild ids created close together, like the guilds of a bot
+    private static long snowflake(int i)
+    {
+        return ((1500000000000L + i * 1000L) << 22) | (i & 0xFFF);
+    }
+
+    @Test
+    public void keepsEveryKey()
+    {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        for(int i = 0; i < 10000; i++)
+            assertEquals("g" + snowflake(i), map.computeIfAbsent(snowflake(i), k -> "g" + k));
+        assertEquals(10000, map.size());
+        for(int i = 0; i < 10000; i++)
+            assertEquals("g" + snowflake(i), map.get(snowflake(i)));
+        assertNull(map.get(snowflake(10000)));
+        assertNull(map.get(0));
+        assertNull(map.get(-1));
+    }
+
+    @Test
+    public void existingValueIsKept()
+    {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        assertEquals("first", map.computeIfAbsent(7, k -> "first"));
+        assertEquals("first", map.computeIfAbsent(7, k -> fail("already there")));
+        assertNull(map.computeIfAbsent(8, k -> null));
+        assertNull(map.get(8));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void createsOncePerKeyUnderContention() throws InterruptedException
+    {
+        ConcurrentLongMap<Object> map = new ConcurrentLongMap<>();
+        AtomicInteger created = new AtomicInteger();
+        int threads = 8, keys = 2000;
+        Object[][] seen = new Object[threads][keys];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> running = new ArrayList<>();
+        AtomicInteger mismatches = new AtomicInteger();
+        for(int t = 0; t < threads; t++)
+        {
+            int id = t;
+            Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                }
+                catch(InterruptedException ex)
+                {
+                    return;
+                }
+                for(int i = 0; i < keys; i++)
+                {
+                    // every thread walks the keys from a different place
+                    int k = (i + id * keys / threads) % keys;
+                    seen[id][k] = map.computeIfAbsent(snowflake(k), x ->
+                    {
+                        created.incrementAndGet();
+                        return new Object();
+                    });
+                    if(map.get(snowflake(k)) != seen[id][k])
+                        mismatches.incrementAndGet();
+                }
+            });
+            running.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for(Thread thread : running)
+            thread.join();
+
+        assertEquals(0, mismatches.get());
+        assertEquals(keys, created.get());
+        assertEquals(keys, map.size());
+        for(int t = 0; t < threads; t++)
+            for(int k = 0; k < keys; k++)
+                assertSame(map.get(snowflake(k)), seen[t][k]);
+    }
+}
@@ -17,6 +17,8 @@ package com.jagrosh.jmusicbot;
 
 import com.jagrosh.jmusicbot.queue.FairQueue;
 import com.jagrosh.jmusicbot.queue.Queueable;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -47,6 +49,27 @@ public class FairQueueTest
         assertEquals(queue.size(), size);
     }
     
+    @Test
+    public void addAllMatchesAdd()
+    {
+        FairQueue<Q> single = new FairQueue<>(null);
+        FairQueue<Q> batch = new FairQueue<>(null);
+        for(int i=0; i<30; i++)
+        {
+            Q q = new Q(i % 4);
+            single.add(q);
+            batch.add(q);
+        }
+        List<Q> items = new ArrayList<>();
+        for(int i=0; i<50; i++)
+            items.add(new Q(i < 40 ? 1 : i % 6));
+        items.forEach(single::add);
+        batch.addAll(items);
+        assertEquals(single.size(), batch.size());
+        for(int i=0; i<single.size(); i++)
+            assertEquals(single.get(i), batch.get(i));
+    }
+    
     private class Q implements Queueable
     {
         private final long identifier;
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.queue.AbstractQueue;
+import com.jagrosh.jmusicbot.queue.FairQueue;
+import com.jagrosh.jmusicbot.queue.IndexedFairQueue;
+import com.jagrosh.jmusicbot.queue.LinearQueue;
+import com.jagrosh.jmusicbot.queue.Queueable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link IndexedFairQueue} orders items exactly like {@link FairQueue}
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class IndexedFairQueueTest
+{
+    @Test
+    public void addsOnly()
+    {
+        for(long seed=0; seed<50; seed++)
+            compare(seed, 500, new int[]{1, 0, 0, 0, 0, 0, 0, 0, 0});
+    }
+
+    @Test
+    public void addsAndPulls()
+    {
+        for(long seed=0; seed<50; seed++)
+            compare(seed, 1000, new int[]{6, 3, 0, 0, 0, 0, 0, 1, 1});
+    }
+
+    @Test
+    public void allOperations()
+    {
+        for(long seed=0; seed<200; seed++)
+            compare(seed, 1000, new int[]{10, 3, 1, 1, 1, 1, 1, 1, 1});
+    }
+
+    @Test
+    public void fromLinearQueue()
+    {
+        Random random = new Random(7);
+        LinearQueue<Q> first = new LinearQueue<>(null);
+        LinearQueue<Q> second = new LinearQueue<>(null);
+        for(int i=0; i<50; i++)
+        {
+            Q item = new Q(random.nextInt(4));
+            first.add(item);
+            second.add(item);
+        }
+        FairQueue<Q> expected = new FairQueue<>(first);
+        IndexedFairQueue<Q> actual = new IndexedFairQueue<>(second);
+        for(int i=0; i<200; i++)
+        {
+            Q item = new Q(random.nextInt(6));
+            assertEquals(expected.add(item), actual.add(item));
+            assertSameOrder(expected, actual);
+        }
+    }
+
+    @Test
+    public void changedByReplacement()
+    {
+        Random random = new Random(3);
+        FairQueue<Q> expected = new FairQueue<>(new LinearQueue<>(null));
+        IndexedFairQueue<Q> actual = new IndexedFairQueue<>(null);
+        LinearQueue<Q> replacement = new LinearQueue<>(actual);
+        for(int i=0; i<300; i++)
+        {
+            Q item = new Q(random.nextInt(5));
+            if(random.nextInt(4) == 0)
+            {
+                // the replacing queue changes the shared list behind the indexed queue's back
+                replacement.add(item);
+                expected.getList().add(item);
+            }
+            else
+                assertEquals(expected.add(item), actual.add(item));
+            assertSameOrder(expected, actual);
+        }
+    }
+
+    /**
+     * Runs the same random operations against both queues
+     * @param weights relative weights of add, pull, addAt, remove, moveItem, removeAll, shuffle, skip, addAll
+     */
+    private void compare(long seed, int operations, int[] weights)
+    {
+        Random random = new Random(seed);
+        FairQueue<Q> expected = new FairQueue<>(null);
+        IndexedFairQueue<Q> actual = new IndexedFairQueue<>(null);
+        int users = 2 + random.nextInt(6);
+        int total = 0;
+        for(int weight : weights)
+            total += weight;
+        for(int i=0; i<operations; i++)
+        {
+            int size = expected.size();
+            int pick = random.nextInt(total);
+            int op = 0;
+            while(pick >= weights[op])
+                pick -= weights[op++];
+            switch(op)
+            {
+                case 0:
+                    Q item = new Q(random.nextInt(users));
+                    assertEquals(expected.add(item), actual.add(item), "add, seed " + seed);
+                    break;
+                case 1:
+                    if(size > 0)
+                        assertEquals(expected.pull().getIdentifier(), actual.pull().getIdentifier());
+                    break;
+                case 2:
+                    Q front = new Q(random.nextInt(users));
+                    int at = random.nextInt(size + 1);
+                    expected.addAt(at, front);
+                    actual.addAt(at, front);
+                    break;
+                case 3:
+                    if(size > 0)
+                    {
+                        int index = random.nextInt(size);
+                        assertEquals(expected.remove(index).getIdentifier(), actual.remove(index).getIdentifier());
+                    }
+                    break;
+                case 4:
+                    if(size > 0)
+                    {
+                        int from = random.nextInt(size);
+                        int to = random.nextInt(size);
+                        expected.moveItem(from, to);
+                        actual.moveItem(from, to);
+                    }
+                    break;
+                case 5:
+                    long removed = random.nextInt(users);
+                    assertEquals(expected.removeAll(removed), actual.removeAll(removed));
+                    break;
+                case 6:
+                    long shuffled = random.nextInt(users);
+                    assertEquals(expected.shuffle(shuffled), actual.shuffle(shuffled));
+                    break;
+                case 7:
+                    int skip = size == 0 ? 0 : random.nextInt(Math.min(size, 5));
+                    expected.skip(skip);
+                    actual.skip(skip);
+                    break;
+                default:
+                    List<Q> batch = new ArrayList<>();
+                    long requester = random.nextInt(users);
+                    for(int j=random.nextInt(20); j>=0; j--)
+                        batch.add(new Q(random.nextInt(4) == 0 ? random.nextInt(users) : requester));
+                    int first = -1;
+                    for(Q q : batch)
+                    {
+                        int index = expected.add(q);
+                        if(first == -1)
+                            first = index;
+                    }
+                    assertEquals(first, actual.addAll(batch));
+            }
+            assertSameOrder(expected, actual);
+        }
+    }
+
+    private void assertSameOrder(AbstractQueue<Q> expected, AbstractQueue<Q> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for(int i=0; i<expected.size(); i++)
+            assertEquals(expected.get(i).getIdentifier(), actual.get(i).getIdentifier());
+    }
+
+    private class Q implements Queueable
+    {
+        private final long identifier;
+
+        private Q(long identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public long getIdentifier()
+        {
+            return identifier;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jdautilities.commons.waiter.EventWaiter;
+import com.jagrosh.jmusicbot.utils.LazyPaginator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.MessageReaction;
+import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.requests.restaction.MessageAction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Turns pages with mocked reactions and checks the footers of what was shown
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class LazyPaginatorTest
+{
+    private final List<String> shown = new ArrayList<>();
+    private EventWaiter waiter;
+    private MessageChannel channel;
+    private Message message;
+    private Consumer<MessageReactionAddEvent> onReaction;
+    private Runnable onTimeout;
+    private int finished = 0;
+    private boolean failing = false; // reactions and edits fail
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        waiter = mock(EventWaiter.class);
+        doAnswer(invocation ->
+        {
+            onReaction = invocation.getArgument(2);
+            onTimeout = invocation.getArgument(5);
+            return null;
+        }).when(waiter).waitForEvent(eq(MessageReactionAddEvent.class), any(), any(), anyLong(), any(), any());
+
+        message = mock(Message.class);
+        when(message.getIdLong()).thenReturn(1L);
+        RestAction<Void> reaction = mock(RestAction.class);
+        doAnswer(invocation ->
+        {
+            if(failing)
+                invocation.<Consumer<Throwable>>getArgument(1).accept(new IllegalStateException("Unknown Message"));
+            else
+                invocation.<Consumer<Void>>getArgument(0).accept(null);
+            return null;
+        }).when(reaction).queue(any(), any());
+        when(message.addReaction(anyString())).thenReturn(reaction);
+        when(message.editMessage(any(Message.class))).thenAnswer(invocation -> show(invocation.getArgument(0)));
+
+        channel = mock(MessageChannel.class);
+        when(channel.sendMessage(any(Message.class))).thenAnswer(invocation -> show(invocation.getArgument(0)));
+    }
+
+    @Test
+    public void singlePageIsDoneRightAway()
+    {
+        paginator(5).paginate(channel, 1);
+        assertEquals(List.of("Page 1/1"), shown);
+        assertEquals(1, finished);
+        assertNull(onReaction);
+        verify(message, never()).addReaction(anyString());
+    }
+
+    @Test
+    public void pagesWrapAround()
+    {
+        paginator(25).paginate(channel, 1);
+        react(LazyPaginator.LEFT);
+        react(LazyPaginator.RIGHT);
+        react(LazyPaginator.RIGHT);
+        assertEquals(List.of("Page 1/3", "Page 3/3", "Page 1/3", "Page 2/3"), shown);
+        assertEquals(0, finished);
+    }
+
+    @Test
+    public void stopIsDone()
+    {
+        paginator(25).paginate(channel, 2);
+        react(LazyPaginator.STOP);
+        assertEquals(List.of("Page 2/3"), shown);
+        assertEquals(1, finished);
+    }
+
+    @Test
+    public void timeoutIsDone()
+    {
+        paginator(25).paginate(channel, 3);
+        react(LazyPaginator.RIGHT);
+        onTimeout.run();
+        assertEquals(List.of("Page 3/3", "Page 1/3"), shown);
+        assertEquals(1, finished);
+    }
+
+    @Test
+    public void failedReactionIsDone()
+    {
+        failing = true;
+        paginator(25).paginate(channel, 1);
+        assertEquals(1, finished);
+        assertNull(onReaction);
+    }
+
+    @Test
+    public void failedEditIsDone()
+    {
+        paginator(25).paginate(channel, 1);
+        // the message was deleted meanwhile
+        failing = true;
+        react(LazyPaginator.RIGHT);
+        assertEquals(1, finished);
+    }
+
+    private LazyPaginator paginator(int count)
+    {
+        return new LazyPaginator.Builder()
+                .setEventWaiter(waiter)
+                .setItemsPerPage(10)
+                .setItems(count, i -> "item" + i)
+                .setFinalAction(m -> finished++)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private MessageAction show(Message rendered)
+    {
+        shown.add(rendered.getEmbeds().get(0).getFooter().getText());
+        MessageAction action = mock(MessageAction.class);
+        doAnswer(invocation ->
+        {
+            invocation.<Consumer<Message>>getArgument(0).accept(message);
+            return null;
+        }).when(action).queue(any());
+        doAnswer(invocation ->
+        {
+            if(failing)
+                invocation.<Consumer<Throwable>>getArgument(1).accept(new IllegalStateException("Unknown Message"));
+            else
+                invocation.<Consumer<Message>>getArgument(0).accept(message);
+            return null;
+        }).when(action).queue(any(), any());
+        return action;
+    }
+
+    private void react(String emoji)
+    {
+        MessageReaction.ReactionEmote emote = mock(MessageReaction.ReactionEmote.class);
+        when(emote.getName()).thenReturn(emoji);
+        when(emote.isEmoji()).thenReturn(true);
+        MessageReactionAddEvent event = mock(MessageReactionAddEvent.class);
+        when(event.getReactionEmote()).thenReturn(emote);
+        onReaction.accept(event);
+    }
+}
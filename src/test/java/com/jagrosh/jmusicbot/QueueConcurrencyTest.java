@@ -0,0 +1,164 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.queue.AbstractQueue;
+import com.jagrosh.jmusicbot.queue.FairQueue;
+import com.jagrosh.jmusicbot.queue.IndexedFairQueue;
+import com.jagrosh.jmusicbot.queue.LinearQueue;
+import com.jagrosh.jmusicbot.queue.QueueSnapshot;
+import com.jagrosh.jmusicbot.queue.Queueable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers a queue from several threads at once, the way commands, track
+ * events and the now playing updater do
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class QueueConcurrencyTest
+{
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 5000;
+
+    @Test
+    public void concurrentOperations() throws InterruptedException
+    {
+        AtomicReference<AbstractQueue<Q>> queue = new AtomicReference<>(new IndexedFairQueue<>(null));
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger removed = new AtomicInteger();
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for(int t=0; t<THREADS; t++)
+        {
+            long seed = t;
+            Thread thread = new Thread(() ->
+            {
+                Random random = new Random(seed);
+                try
+                {
+                    start.await();
+                    for(int i=0; i<OPERATIONS; i++)
+                    {
+                        AbstractQueue<Q> q = queue.get();
+                        switch(random.nextInt(10))
+                        {
+                            case 0:
+                                removed.addAndGet(q.removeAll(random.nextInt(6)));
+                                break;
+                            case 1:
+                                synchronized(q.getList())
+                                {
+                                    if(!q.isEmpty())
+                                    {
+                                        q.pull();
+                                        removed.incrementAndGet();
+                                    }
+                                }
+                                break;
+                            case 2:
+                                QueueSnapshot<Q> snapshot = q.snapshot();
+                                int count = 0;
+                                for(Q item : snapshot)
+                                    count++;
+                                assertEquals(snapshot.size(), count);
+                                assertEquals(count, snapshot.getRequesters().stream().mapToInt(snapshot::getCount).sum());
+                                break;
+                            case 3:
+                                q.shuffle(random.nextInt(6));
+                                break;
+                            case 4:
+                                synchronized(q.getList())
+                                {
+                                    int skip = Math.min(q.size(), 1 + random.nextInt(2));
+                                    q.skip(skip);
+                                    removed.addAndGet(skip);
+                                }
+                                break;
+                            case 5:
+                                // like changing the queue type, while others still use the old queue
+                                if(i % 100 == 0)
+                                    synchronized(q.getList())
+                                    {
+                                        queue.set(random.nextBoolean() ? new LinearQueue<>(q) : new IndexedFairQueue<>(q));
+                                    }
+                                else
+                                {
+                                    q.add(new Q(random.nextInt(6)));
+                                    added.incrementAndGet();
+                                }
+                                break;
+                            default:
+                                q.add(new Q(random.nextInt(6)));
+                                added.incrementAndGet();
+                        }
+                    }
+                }
+                catch(Throwable e)
+                {
+                    errors.add(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for(Thread thread : threads)
+            thread.join();
+
+        assertTrue(errors.isEmpty(), () -> "errors: " + errors);
+        AbstractQueue<Q> result = new IndexedFairQueue<>(queue.get());
+        assertEquals(added.get() - removed.get(), result.size());
+
+        // whatever order the threads left behind, adding must still match a fair queue
+        LinearQueue<Q> copy = new LinearQueue<>(null);
+        for(Q item : result.snapshot())
+            copy.add(item);
+        FairQueue<Q> expected = new FairQueue<>(copy);
+        for(int i=0; i<100; i++)
+        {
+            Q item = new Q(i % 7);
+            assertEquals(expected.add(item), result.add(item));
+        }
+    }
+
+    private class Q implements Queueable
+    {
+        private final long identifier;
+
+        private Q(long identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public long getIdentifier()
+        {
+            return identifier;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.queue.FairQueue;
+import com.jagrosh.jmusicbot.queue.QueueSnapshot;
+import com.jagrosh.jmusicbot.queue.Queueable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the running totals of a queue against totals counted from scratch
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class QueueListTest
+{
+    @Test
+    public void totalsMatchRecount()
+    {
+        Random random = new Random(11);
+        FairQueue<Q> queue = new FairQueue<>(null);
+        for(int op=0; op<5000; op++)
+        {
+            int size = queue.size();
+            switch(random.nextInt(6))
+            {
+                case 0:
+                    if(size > 0)
+                        queue.remove(random.nextInt(size));
+                    break;
+                case 1:
+                    queue.removeAll(random.nextInt(5));
+                    break;
+                case 2:
+                    queue.skip(Math.min(size, random.nextInt(3)));
+                    break;
+                case 3:
+                    queue.shuffle(random.nextInt(5));
+                    break;
+                default:
+                    queue.add(new Q(random.nextInt(5), random.nextInt(20) == 0 ? Long.MAX_VALUE : random.nextInt(600000)));
+            }
+            if(op % 100 == 0)
+                assertTotals(queue.snapshot());
+        }
+        queue.clear();
+        assertTotals(queue.snapshot());
+        assertEquals(0, queue.getTotalDuration());
+    }
+
+    @Test
+    public void snapshotKeepsTotals()
+    {
+        FairQueue<Q> queue = new FairQueue<>(null);
+        queue.add(new Q(1, 1000));
+        queue.add(new Q(2, 2000));
+        QueueSnapshot<Q> before = queue.snapshot();
+        queue.add(new Q(1, Long.MAX_VALUE));
+        queue.removeAll(2);
+        assertEquals(3000, before.getTotalDuration());
+        assertEquals(1, before.getCount(2));
+        assertEquals(Long.MAX_VALUE, queue.getTotalDuration());
+        QueueSnapshot<Q> after = queue.snapshot();
+        assertEquals(1000, after.getDuration());
+        assertEquals(1, after.getLiveCount());
+        assertEquals(Long.MAX_VALUE, after.getTotalDuration(1));
+        assertEquals(0, after.getCount(2));
+    }
+
+    private void assertTotals(QueueSnapshot<Q> snapshot)
+    {
+        long duration = 0;
+        int live = 0;
+        List<Long> requesters = new ArrayList<>();
+        for(Q item : snapshot)
+        {
+            if(item.duration == Long.MAX_VALUE)
+                live++;
+            else
+                duration += item.duration;
+            if(!requesters.contains(item.identifier))
+                requesters.add(item.identifier);
+        }
+        assertEquals(duration, snapshot.getDuration());
+        assertEquals(live, snapshot.getLiveCount());
+        assertEquals(requesters.size(), snapshot.getRequesters().size());
+        for(long requester : requesters)
+            assertEquals(snapshot.stream().filter(q -> q.identifier == requester).count(), (long)snapshot.getCount(requester));
+    }
+
+    private class Q implements Queueable
+    {
+        private final long identifier;
+        private final long duration;
+
+        private Q(long identifier, long duration)
+        {
+            this.identifier = identifier;
+            this.duration = duration;
+        }
+
+        @Override
+        public long getIdentifier()
+        {
+            return identifier;
+        }
+
+        @Override
+        public long getDuration()
+        {
+            return duration;
+        }
+    }
+}
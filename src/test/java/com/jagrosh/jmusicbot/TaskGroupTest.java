@@ -0,0 +1,172 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class TaskGroupTest
+{
+    private ScheduledThreadPoolExecutor timers;
+    private ExecutorService blocking;
+
+    @BeforeEach
+    public void setUp()
+    {
+        timers = new ScheduledThreadPoolExecutor(1);
+        timers.setRemoveOnCancelPolicy(true);
+        blocking = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        timers.shutdownNow();
+        blocking.shutdownNow();
+    }
+
+    @Test
+    public void failingTaskKeepsItsSchedule() throws InterruptedException
+    {
+        TaskGroup group = new TaskGroup("test", timers, timers);
+        CountDownLatch ran = new CountDownLatch(3);
+        group.scheduleWithFixedDelay(() ->
+        {
+            ran.countDown();
+            throw new IllegalStateException("broken");
+        }, 0, 1, TimeUnit.MILLISECONDS);
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        assertTrue(group.getFailures() >= 2);
+        assertFalse(group.isBlocking());
+    }
+
+    @Test
+    public void slowBlockingTaskDoesntHoldUpTimers() throws InterruptedException
+    {
+        TaskGroup slow = new TaskGroup("slow", timers, blocking);
+        TaskGroup fast = new TaskGroup("fast", timers, timers);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        slow.scheduleWithFixedDelay(() ->
+        {
+            started.incrementAndGet();
+            try
+            {
+                release.await();
+            }
+            catch(InterruptedException ignore) {}
+        }, 0, 1, TimeUnit.MILLISECONDS);
+
+        CountDownLatch ticks = new CountDownLatch(5);
+        fast.scheduleWithFixedDelay(ticks::countDown, 0, 1, TimeUnit.MILLISECONDS);
+        assertTrue(ticks.await(10, TimeUnit.SECONDS));
+
+        // ticks while the first run is stuck are skipped, not piled up
+        long end = System.currentTimeMillis() + 10000;
+        while(slow.getOverruns() == 0)
+        {
+            assertTrue(System.currentTimeMillis() < end, "timed out waiting for a skipped run");
+            Thread.sleep(5);
+        }
+        assertEquals(1, started.get());
+        assertTrue(slow.isBlocking());
+        release.countDown();
+    }
+
+    @Test
+    public void cancelledDeadlineNeverRuns() throws InterruptedException
+    {
+        TaskGroup group = new TaskGroup("test", timers, timers);
+        AtomicInteger cancelledRuns = new AtomicInteger();
+        CountDownLatch ran = new CountDownLatch(1);
+        group.schedule(cancelledRuns::incrementAndGet, 50, TimeUnit.MILLISECONDS).cancel(false);
+        group.schedule(ran::countDown, 200, TimeUnit.MILLISECONDS);
+        assertEquals(1, timers.getQueue().size());
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        assertEquals(0, cancelledRuns.get());
+    }
+
+    @Test
+    public void cancelledBlockingDeadlineNeverRuns() throws Exception
+    {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        TaskGroup group = new TaskGroup("test", timers, single);
+        AtomicInteger cancelledRuns = new AtomicInteger();
+        CountDownLatch busy = new CountDownLatch(1), release = new CountDownLatch(1);
+        try
+        {
+            // keep the runner from getting to the handed over run
+            single.execute(() ->
+            {
+                busy.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch(InterruptedException ignore) {}
+            });
+            assertTrue(busy.await(10, TimeUnit.SECONDS));
+            ScheduledFuture<?> deadline = group.schedule(cancelledRuns::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+            // handed over, but still waiting for the runner
+            while(timers.getCompletedTaskCount() == 0)
+                Thread.sleep(5);
+            assertTrue(deadline.cancel(false));
+            assertTrue(deadline.isCancelled());
+            release.countDown();
+            ScheduledFuture<?> after = group.schedule(() -> {}, 0, TimeUnit.MILLISECONDS);
+            after.get(10, TimeUnit.SECONDS);
+            assertEquals(0, cancelledRuns.get());
+            assertEquals(1, group.getRuns());
+            assertFalse(after.cancel(false));
+        }
+        finally
+        {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void submittedRunsAreTimed() throws Exception
+    {
+        TaskGroup group = new TaskGroup("test", timers, blocking);
+        group.submit(() ->
+        {
+            try
+            {
+                Thread.sleep(20);
+            }
+            catch(InterruptedException ignore) {}
+        }).get(10, TimeUnit.SECONDS);
+        assertEquals(1, group.getRuns());
+        assertEquals(0, group.getOverruns());
+        assertTrue(group.getMaxRunTime() >= 20);
+        assertEquals(group.getMaxRunTime(), group.getAverageRunTime(), 0.001);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.queue.TreeList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class TreeListTest
+{
+    @Test
+    public void addAndGet()
+    {
+        List<Integer> list = new TreeList<>();
+        for(int i=0; i<1000; i++)
+            list.add(i);
+        assertEquals(1000, list.size());
+        for(int i=0; i<1000; i++)
+            assertEquals(i, list.get(i));
+    }
+
+    @Test
+    public void removeRange()
+    {
+        List<Integer> list = new TreeList<>();
+        for(int i=0; i<100; i++)
+            list.add(i);
+        list.subList(0, 40).clear();
+        assertEquals(60, list.size());
+        assertEquals(40, list.get(0));
+        assertEquals(99, list.get(59));
+    }
+
+    @Test
+    public void iteratorRemove()
+    {
+        List<Integer> list = new TreeList<>();
+        for(int i=0; i<100; i++)
+            list.add(i);
+        for(Iterator<Integer> it = list.iterator(); it.hasNext(); )
+            if(it.next() % 2 == 0)
+                it.remove();
+        assertEquals(50, list.size());
+        for(int i=0; i<50; i++)
+            assertEquals(i*2+1, list.get(i));
+    }
+
+    @Test
+    public void snapshot()
+    {
+        TreeList<Integer> list = new TreeList<>();
+        for(int i=0; i<100; i++)
+            list.add(i);
+        List<Integer> snapshot = list.snapshot();
+        long version = list.version();
+        list.remove(0);
+        list.set(10, -1);
+        list.add(50, -2);
+        assertNotEquals(version, list.version());
+        assertEquals(100, snapshot.size());
+        for(int i=0; i<100; i++)
+            assertEquals(i, snapshot.get(i));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(0));
+    }
+
+    @Test
+    public void matchesArrayList()
+    {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new TreeList<>();
+        for(int op=0; op<20000; op++)
+        {
+            int size = expected.size();
+            switch(random.nextInt(5))
+            {
+                case 0:
+                case 1:
+                    int index = random.nextInt(size + 1);
+                    expected.add(index, op);
+                    actual.add(index, op);
+                    break;
+                case 2:
+                    if(size > 0)
+                    {
+                        int remove = random.nextInt(size);
+                        assertEquals(expected.remove(remove), actual.remove(remove));
+                    }
+                    break;
+                case 3:
+                    if(size > 0)
+                    {
+                        int set = random.nextInt(size);
+                        assertEquals(expected.set(set, -op), actual.set(set, -op));
+                    }
+                    break;
+                default:
+                    if(size > 0)
+                    {
+                        int get = random.nextInt(size);
+                        assertEquals(expected.get(get), actual.get(get));
+                    }
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(expected, actual);
+        assertEquals(expected, new ArrayList<>(actual));
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BaseAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the track cache in front of a local stub source, so nothing goes out
+ * to the network
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CachingSourceManagerTest
+{
+    private final AtomicLong clock = new AtomicLong();
+    private DefaultAudioPlayerManager manager;
+    private StubSourceManager stub;
+
+    @BeforeEach
+    public void setUp()
+    {
+        manager = new DefaultAudioPlayerManager();
+        stub = new StubSourceManager();
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        manager.shutdown();
+    }
+
+    @Test
+    public void hitDecodesNewTrack()
+    {
+        CachingSourceManager cache = register(1024 * 1024);
+        AudioTrack first = (AudioTrack) load(cache, "stub:a");
+        AudioTrack second = (AudioTrack) load(cache, "stub:a");
+        assertEquals(1, stub.loads);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertNotSame(first, second);
+        assertEquals(first.getIdentifier(), second.getIdentifier());
+        assertEquals(first.getInfo().title, second.getInfo().title);
+        assertEquals(first.getDuration(), second.getDuration());
+    }
+
+    @Test
+    public void playlistKeepsOrderAndSelection()
+    {
+        CachingSourceManager cache = register(1024 * 1024);
+        load(cache, "search:abc");
+        AudioPlaylist playlist = (AudioPlaylist) load(cache, "search:abc");
+        assertEquals(1, stub.loads);
+        assertTrue(playlist.isSearchResult());
+        assertEquals(3, playlist.getTracks().size());
+        for(int i = 0; i < 3; i++)
+            assertEquals("abc" + i, playlist.getTracks().get(i).getIdentifier());
+        assertEquals("abc1", playlist.getSelectedTrack().getIdentifier());
+    }
+
+    @Test
+    public void noMatchesIsCached()
+    {
+        CachingSourceManager cache = register(1024 * 1024);
+        assertSame(AudioReference.NO_TRACK, load(cache, "nothing"));
+        assertSame(AudioReference.NO_TRACK, load(cache, "nothing"));
+        assertEquals(1, stub.loads);
+        clock.addAndGet(1001);
+        assertSame(AudioReference.NO_TRACK, load(cache, "nothing"));
+        assertEquals(2, stub.loads);
+    }
+
+    @Test
+    public void entriesExpire()
+    {
+        CachingSourceManager cache = register(1024 * 1024);
+        load(cache, "stub:a");
+        clock.addAndGet(9999);
+        load(cache, "stub:a");
+        assertEquals(1, stub.loads);
+        clock.addAndGet(1);
+        load(cache, "stub:a");
+        assertEquals(2, stub.loads);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted()
+    {
+        CachingSourceManager cache = register(1024 * 1024);
+        load(cache, "stub:a");
+        long entry = cache.getSize();
+        manager.shutdown();
+
+        setUp();
+        cache = register(entry * 2);
+        load(cache, "stub:a");
+        load(cache, "stub:b");
+        load(cache, "stub:a");
+        load(cache, "stub:c");
+        assertEquals(2, cache.getEntries());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.getSize() <= entry * 2);
+        int loads = stub.loads;
+        load(cache, "stub:a");
+        assertEquals(loads, stub.loads);
+        load(cache, "stub:b");
+        assertEquals(loads + 1, stub.loads);
+    }
+
+    @Test
+    public void storeWarmsNewCache() throws Exception
+    {
+        Path file = Files.createTempFile("trackstore", ".bin");
+        try
+        {
+            CachingSourceManager cache = register(1024 * 1024);
+            cache.setStore(new TrackStore(file, 100000, clock::get));
+            load(cache, "stub:a");
+            load(cache, "search:abc");
+            manager.shutdown();
+
+            // like after a restart
+            setUp();
+            cache = register(1024 * 1024);
+            cache.setStore(new TrackStore(file, 100000, clock::get));
+            assertEquals("a", ((AudioTrack) load(cache, "stub:a")).getIdentifier());
+            assertEquals("abc1", ((AudioPlaylist) load(cache, "search:abc")).getSelectedTrack().getIdentifier());
+            load(cache, "stub:a");
+            assertEquals(0, stub.loads);
+            assertEquals(2, cache.getStoreHits());
+            assertEquals(1, cache.getHits());
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void storedSearchesKeepTheTimeToLive() throws Exception
+    {
+        Path file = Files.createTempFile("trackstore", ".bin");
+        try
+        {
+            CachingSourceManager cache = register(1024 * 1024);
+            cache.setStore(new TrackStore(file, 100000, clock::get));
+            load(cache, "search:abc");
+            manager.shutdown();
+
+            setUp();
+            clock.addAndGet(6000);
+            cache = register(1024 * 1024);
+            cache.setStore(new TrackStore(file, 100000, clock::get));
+            load(cache, "search:abc");
+            assertEquals(0, stub.loads);
+            // back in memory for only what was left of its time
+            clock.addAndGet(4000);
+            load(cache, "search:abc");
+            assertEquals(1, stub.loads);
+            assertEquals(1, cache.getStoreHits());
+            manager.shutdown();
+
+            // past the time to live, though not the store's maximum age
+            setUp();
+            clock.addAndGet(10000);
+            cache = register(1024 * 1024);
+            cache.setStore(new TrackStore(file, 100000, clock::get));
+            load(cache, "search:abc");
+            assertEquals(1, stub.loads);
+            assertEquals(0, cache.getStoreHits());
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void storedTracksLastAsLongAsTheStore() throws Exception
+    {
+        Path file = Files.createTempFile("trackstore", ".bin");
+        try
+        {
+            CachingSourceManager cache = register(1024 * 1024);
+            cache.setStore(new TrackStore(file, 100000, clock::get));
+            load(cache, "stub:a");
+            manager.shutdown();
+
+            // well past the time to live, though not the store's maximum age
+            setUp();
+            clock.addAndGet(50000);
+            cache = register(1024 * 1024);
+            cache.setStore(new TrackStore(file, 100000, clock::get));
+            assertEquals("a", ((AudioTrack) load(cache, "stub:a")).getIdentifier());
+            assertEquals(0, stub.loads);
+            assertEquals(1, cache.getStoreHits());
+            // back in memory for a full time to live
+            clock.addAndGet(9999);
+            load(cache, "stub:a");
+            assertEquals(1, cache.getHits());
+            manager.shutdown();
+
+            // past the store's maximum age
+            setUp();
+            clock.addAndGet(100000);
+            cache = register(1024 * 1024);
+            cache.setStore(new TrackStore(file, 100000, clock::get));
+            load(cache, "stub:a");
+            assertEquals(1, stub.loads);
+            assertEquals(0, cache.getStoreHits());
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    private CachingSourceManager register(long maxSize)
+    {
+        CachingSourceManager cache = new CachingSourceManager(maxSize, 10000, 1000, clock::get);
+        manager.registerSourceManager(cache);
+        manager.registerSourceManager(stub);
+        cache.addSource(stub);
+        return cache;
+    }
+
+    private AudioItem load(CachingSourceManager cache, String identifier)
+    {
+        return cache.loadItem(manager, new AudioReference(identifier, null));
+    }
+
+    private class StubSourceManager implements AudioSourceManager
+    {
+        private int loads = 0;
+
+        @Override
+        public String getSourceName()
+        {
+            return "stub";
+        }
+
+        @Override
+        public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference)
+        {
+            loads++;
+            if(reference.identifier.startsWith("stub:"))
+                return track(reference.identifier.substring(5));
+            if(reference.identifier.startsWith("search:"))
+            {
+                String query = reference.identifier.substring(7);
+                List<AudioTrack> tracks = new ArrayList<>();
+                for(int i = 0; i < 3; i++)
+                    tracks.add(track(query + i));
+                return new BasicAudioPlaylist("Search results for: " + query, tracks, tracks.get(1), true);
+            }
+            return null;
+        }
+
+        private AudioTrack track(String identifier)
+        {
+            return new StubTrack(new AudioTrackInfo("Title " + identifier, "Author", 60000, identifier, false, "stub:" + identifier));
+        }
+
+        @Override
+        public boolean isTrackEncodable(AudioTrack track)
+        {
+            return true;
+        }
+
+        @Override
+        public void encodeTrack(AudioTrack track, DataOutput output) {}
+
+        @Override
+        public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input)
+        {
+            return new StubTrack(trackInfo);
+        }
+
+        @Override
+        public void shutdown() {}
+    }
+
+    private class StubTrack extends BaseAudioTrack
+    {
+        private StubTrack(AudioTrackInfo info)
+        {
+            super(info);
+        }
+
+        @Override
+        public void process(LocalAudioTrackExecutor executor) {}
+
+        @Override
+        public AudioSourceManager getSourceManager()
+        {
+            return stub;
+        }
+    }
+}
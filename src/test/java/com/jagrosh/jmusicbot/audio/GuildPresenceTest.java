@@ -0,0 +1,191 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays voice events into a {@link GuildPresence}, and after each one
+ * checks its counts against a walk over the whole guild, as the commands
+ * used to do.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class GuildPresenceTest
+{
+    @Test
+    void votesOnlyCountWhileListening()
+    {
+        Guild guild = new Guild();
+        guild.botMoves(1);
+        guild.join(10, 1);
+        guild.join(11, 1);
+        guild.join(12, 2);
+        guild.vote(10);
+        guild.vote(12);
+        assertEquals(2, guild.presence.getListeners());
+        assertEquals(1, guild.presence.getVotes());
+
+        guild.deafen(10, true);
+        assertEquals(0, guild.presence.getVotes());
+        guild.deafen(10, false);
+        assertEquals(1, guild.presence.getVotes());
+        guild.move(12, 1);
+        assertEquals(2, guild.presence.getVotes());
+        assertFalse(guild.presence.vote(12));
+
+        guild.presence.clearVotes();
+        assertEquals(0, guild.presence.getVotes());
+        assertEquals(3, guild.presence.getListeners());
+    }
+
+    @Test
+    void botsAndOtherChannelsDontCount()
+    {
+        Guild guild = new Guild();
+        guild.join(10, 1);
+        guild.botMoves(1);
+        guild.joinBot(20, 1);
+        guild.join(11, 2);
+        assertEquals(1, guild.presence.getListeners());
+
+        guild.botMoves(2);
+        assertEquals(1, guild.presence.getListeners());
+        guild.leave(11);
+        assertEquals(0, guild.presence.getListeners());
+    }
+
+    @Test
+    void randomReplayMatchesFullWalk()
+    {
+        Random random = new Random(42);
+        Guild guild = new Guild();
+        for(int i = 0; i < 20000; i++)
+        {
+            long user = 10 + random.nextInt(30);
+            long channel = random.nextInt(4);
+            switch(random.nextInt(8))
+            {
+                case 0: guild.botMoves(channel); break;
+                case 1: guild.deafen(user, random.nextBoolean()); break;
+                case 2: guild.vote(user); break;
+                case 3:
+                    if(random.nextInt(20) == 0)
+                    {
+                        guild.presence.clearVotes();
+                        guild.votes.clear();
+                    }
+                    break;
+                default:
+                    if(user % 7 == 0)
+                        guild.joinBot(user, channel);
+                    else
+                        guild.move(user, channel);
+            }
+            guild.check(i);
+        }
+    }
+
+    /**
+     * A guild as Discord sees it, which hands every change to the presence
+     * the way {@link VoicePresence} would
+     */
+    private static class Guild
+    {
+        private final GuildPresence presence = new GuildPresence();
+        private final Map<Long, Long> channels = new HashMap<>();
+        private final Set<Long> deafened = new HashSet<>(), bots = new HashSet<>(), votes = new HashSet<>();
+        private long botChannel = 0;
+
+        void botMoves(long channel)
+        {
+            botChannel = channel;
+            List<Long> listening = new ArrayList<>();
+            for(long user : channels.keySet())
+                if(isListening(user, channel))
+                    listening.add(user);
+            presence.reset(channel, listening);
+        }
+
+        void join(long user, long channel)
+        {
+            move(user, channel);
+        }
+
+        void joinBot(long user, long channel)
+        {
+            bots.add(user);
+            move(user, channel);
+        }
+
+        void leave(long user)
+        {
+            move(user, 0);
+        }
+
+        void move(long user, long channel)
+        {
+            Long left = channels.remove(user);
+            if(channel != 0)
+                channels.put(user, channel);
+            presence.moved(user, !bots.contains(user) && !deafened.contains(user), left == null ? 0 : left, channel);
+        }
+
+        void deafen(long user, boolean deafen)
+        {
+            if(!channels.containsKey(user))
+                return;
+            if(deafen)
+                deafened.add(user);
+            else
+                deafened.remove(user);
+            presence.deafened(user, !bots.contains(user) && !deafen, channels.get(user));
+        }
+
+        void vote(long user)
+        {
+            assertEquals(votes.add(user), presence.vote(user));
+        }
+
+        void check(int step)
+        {
+            int listeners = 0, voters = 0;
+            for(long user : channels.keySet())
+                if(botChannel != 0 && isListening(user, botChannel))
+                {
+                    listeners++;
+                    if(votes.contains(user))
+                        voters++;
+                }
+            assertEquals(listeners, presence.getListeners(), "listeners after event " + step);
+            assertEquals(voters, presence.getVotes(), "votes after event " + step);
+        }
+
+        private boolean isListening(long user, long channel)
+        {
+            return channels.get(user) == channel && !bots.contains(user) && !deafened.contains(user);
+        }
+    }
+}
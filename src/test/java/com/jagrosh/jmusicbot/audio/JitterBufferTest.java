@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Plays the send thread against a player that has the queued frames ready,
+ * each frame holding just its number
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class JitterBufferTest
+{
+    private final Queue<Integer> ready = new ArrayDeque<>();
+    private AudioPlayer player;
+
+    @BeforeEach
+    void setUp()
+    {
+        player = mock(AudioPlayer.class);
+        when(player.getPlayingTrack()).thenReturn(mock(AudioTrack.class));
+        when(player.provide(any(MutableAudioFrame.class))).thenAnswer(invocation ->
+        {
+            Integer frame = ready.poll();
+            if(frame == null)
+                return false;
+            invocation.<MutableAudioFrame>getArgument(0).store(new byte[]{frame.byteValue()}, 0, 1);
+            return true;
+        });
+    }
+
+    @Test
+    void fillsBeforeSending()
+    {
+        JitterBuffer buffer = new JitterBuffer(player, 3);
+        ready.add(1);
+        assertFalse(buffer.canProvide());
+        ready.add(2);
+        assertFalse(buffer.canProvide());
+        ready.add(3);
+        assertEquals(1, send(buffer));
+        // what is buffered carries over ticks where the player has nothing
+        assertEquals(2, send(buffer));
+        ready.add(4);
+        assertEquals(3, send(buffer));
+        assertEquals(4, send(buffer));
+        assertEquals(0, buffer.getUnderruns());
+    }
+
+    @Test
+    void underrunWaitsForRefill()
+    {
+        JitterBuffer buffer = new JitterBuffer(player, 2);
+        ready.add(1);
+        ready.add(2);
+        assertEquals(1, send(buffer));
+        assertEquals(2, send(buffer));
+        assertFalse(buffer.canProvide());
+        assertEquals(1, buffer.getUnderruns());
+        // a single frame isn't enough after running dry
+        ready.add(3);
+        assertFalse(buffer.canProvide());
+        ready.add(4);
+        assertEquals(3, send(buffer));
+        assertEquals(4, send(buffer));
+        assertEquals(1, buffer.getUnderruns());
+    }
+
+    @Test
+    void framesAfterRunningDryAreLate()
+    {
+        JitterBuffer buffer = new JitterBuffer(player, 2);
+        ready.add(1);
+        ready.add(2);
+        send(buffer);
+        send(buffer);
+        assertFalse(buffer.canProvide());
+        assertEquals(0, buffer.getLateFrames());
+        ready.add(3);
+        assertFalse(buffer.canProvide());
+        assertEquals(1, buffer.getLateFrames());
+        ready.add(4);
+        assertEquals(3, send(buffer));
+        // full again, so further frames are on time
+        ready.add(5);
+        assertEquals(4, send(buffer));
+        assertEquals(2, buffer.getLateFrames());
+    }
+
+    @Test
+    void flushDropsTheRing()
+    {
+        JitterBuffer buffer = new JitterBuffer(player, 3);
+        ready.add(1);
+        ready.add(2);
+        ready.add(3);
+        assertEquals(1, send(buffer));
+        // the next track starts
+        buffer.flush();
+        ready.add(10);
+        assertFalse(buffer.canProvide());
+        ready.add(11);
+        ready.add(12);
+        assertEquals(10, send(buffer));
+        assertEquals(11, send(buffer));
+        assertEquals(12, send(buffer));
+        assertEquals(0, buffer.getUnderruns());
+    }
+
+    @Test
+    void sendsWhatIsLeftWhenNothingPlays()
+    {
+        JitterBuffer buffer = new JitterBuffer(player, 3);
+        when(player.getPlayingTrack()).thenReturn(null);
+        ready.add(1);
+        assertEquals(1, send(buffer));
+        assertFalse(buffer.canProvide());
+        assertEquals(0, buffer.getUnderruns());
+    }
+
+    // one tick of the send thread
+    private int send(JitterBuffer buffer)
+    {
+        assertTrue(buffer.canProvide());
+        return buffer.provide20MsAudio().get();
+    }
+}
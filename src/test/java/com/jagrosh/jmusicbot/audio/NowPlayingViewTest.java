@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class NowPlayingViewTest
+{
+    private final static String CONTENT = "**Now Playing in #music...**";
+    private final static MessageEmbed SONG = new EmbedBuilder().setTitle("Song").build();
+
+    @Test
+    void sameCellLooksTheSame()
+    {
+        // a 3 minute track moves to the next cell every 15 seconds
+        NowPlayingView shown = playing(false, 1000, 100);
+        assertTrue(playing(false, 14000, 100).looksLike(shown, 0));
+        assertFalse(playing(false, 15000, 100).looksLike(shown, 0));
+    }
+
+    @Test
+    void pausingAndVolumeAreChanges()
+    {
+        NowPlayingView shown = playing(false, 1000, 100);
+        assertFalse(playing(true, 1000, 100).looksLike(shown, 0));
+        assertFalse(playing(false, 1000, 0).looksLike(shown, 0));
+        // same icon
+        assertTrue(playing(false, 1000, 80).looksLike(shown, 0));
+    }
+
+    @Test
+    void otherTrackIsAChange()
+    {
+        NowPlayingView shown = playing(false, 1000, 100);
+        NowPlayingView other = NowPlayingView.playing(CONTENT, new EmbedBuilder().setTitle("Other").build(), false, 1000, 180000, 100);
+        assertFalse(other.looksLike(shown, 0));
+        assertFalse(NowPlayingView.stopped(CONTENT, SONG, 100).looksLike(shown, 0));
+        assertFalse(shown.looksLike(null, 0));
+    }
+
+    @Test
+    void stoppedStaysTheSame()
+    {
+        NowPlayingView shown = NowPlayingView.stopped(CONTENT, SONG, 100);
+        assertTrue(NowPlayingView.stopped(CONTENT, SONG, 100).looksLike(shown, 0));
+    }
+
+    @Test
+    void timeStepIsAChange()
+    {
+        NowPlayingView shown = playing(false, 1000, 100);
+        assertTrue(playing(false, 9999, 100).looksLike(shown, 10000));
+        assertFalse(playing(false, 10000, 100).looksLike(shown, 10000));
+    }
+
+    @Test
+    void nextChangeIsTheNextCellOrStep()
+    {
+        assertEquals(14000, playing(false, 1000, 100).untilChange(0));
+        assertEquals(9000, playing(false, 1000, 100).untilChange(10000));
+        // a 2 hour mix moves a cell every 10 minutes
+        assertEquals(599000, NowPlayingView.playing(CONTENT, SONG, false, 1000, 7200000, 100).untilChange(0));
+        // the last cell lasts until the track ends
+        assertEquals(Long.MAX_VALUE, playing(false, 170000, 100).untilChange(0));
+    }
+
+    @Test
+    void stillViewsNeverChange()
+    {
+        assertEquals(Long.MAX_VALUE, playing(true, 1000, 100).untilChange(1000));
+        assertEquals(Long.MAX_VALUE, NowPlayingView.stopped(CONTENT, SONG, 100).untilChange(1000));
+        NowPlayingView live = NowPlayingView.playing(CONTENT, SONG, false, 1000, Long.MAX_VALUE, 100);
+        assertEquals(Long.MAX_VALUE, live.untilChange(0));
+        assertEquals(4000, live.untilChange(5000));
+    }
+
+    private static NowPlayingView playing(boolean paused, long position, int volume)
+    {
+        return NowPlayingView.playing(CONTENT, SONG, paused, position, 180000, volume);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class TrackStoreTest
+{
+    private final AtomicLong clock = new AtomicLong(1000);
+    private Path dir, file;
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory("trackstore");
+        file = dir.resolve("trackstore.bin");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException
+    {
+        for(Path path : Files.list(dir).toArray(Path[]::new))
+            Files.delete(path);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void survivesReopen() throws IOException
+    {
+        try(TrackStore store = open())
+        {
+            store.put("a", bytes(1, 10));
+            store.put("b", bytes(2, 20));
+            store.put("a", bytes(3, 30));
+        }
+        try(TrackStore store = open())
+        {
+            assertEquals(2, store.size());
+            assertArrayEquals(bytes(3, 30), store.get("a"));
+            assertArrayEquals(bytes(2, 20), store.get("b"));
+            assertNull(store.get("c"));
+        }
+    }
+
+    @Test
+    public void oldRecordsAreIgnored() throws IOException
+    {
+        try(TrackStore store = open())
+        {
+            store.put("a", bytes(1, 10));
+            clock.addAndGet(500);
+            store.put("b", bytes(2, 10));
+            clock.addAndGet(500);
+            assertNull(store.get("a"));
+            assertArrayEquals(bytes(2, 10), store.get("b"));
+        }
+        try(TrackStore store = open())
+        {
+            assertNull(store.get("a"));
+            assertNotNull(store.get("b"));
+        }
+    }
+
+    @Test
+    public void cutOffRecordIsDropped() throws IOException
+    {
+        try(TrackStore store = open())
+        {
+            store.put("a", bytes(1, 10));
+            store.put("b", bytes(2, 10));
+        }
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            channel.truncate(channel.size() - 3);
+        }
+        try(TrackStore store = open())
+        {
+            assertArrayEquals(bytes(1, 10), store.get("a"));
+            assertNull(store.get("b"));
+            // appending after the cut must not be corrupted by what was left of it
+            store.put("c", bytes(4, 10));
+        }
+        try(TrackStore store = open())
+        {
+            assertEquals(2, store.size());
+            assertArrayEquals(bytes(4, 10), store.get("c"));
+        }
+    }
+
+    @Test
+    public void rewritesWhenMostlyDead() throws IOException
+    {
+        try(TrackStore store = open())
+        {
+            for(int i = 0; i < 300; i++)
+                store.put("item" + (i % 3), bytes(i, 10000));
+            assertTrue(Files.size(file) < 2 * 3 * 10100 + 1024 * 1024);
+            assertArrayEquals(bytes(297, 10000), store.get("item0"));
+            assertArrayEquals(bytes(298, 10000), store.get("item1"));
+            assertArrayEquals(bytes(299, 10000), store.get("item2"));
+        }
+        try(TrackStore store = open())
+        {
+            assertEquals(3, store.size());
+            assertArrayEquals(bytes(299, 10000), store.get("item2"));
+        }
+    }
+
+    private TrackStore open() throws IOException
+    {
+        return new TrackStore(file, 1000, clock::get);
+    }
+
+    private static byte[] bytes(int seed, int length)
+    {
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++)
+            bytes[i] = (byte) (seed * 31 + i);
+        return bytes;
+    }
+}
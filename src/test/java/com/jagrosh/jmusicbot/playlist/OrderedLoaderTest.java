@@ -0,0 +1,230 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Finishes loads in random order and checks that results still come out in
+ * playlist order
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class OrderedLoaderTest
+{
+    private AudioPlayerManager manager;
+    private List<String> requested;
+    private List<AudioLoadResultHandler> pending;
+
+    @BeforeEach
+    void setUp()
+    {
+        manager = mock(AudioPlayerManager.class);
+        requested = new ArrayList<>();
+        pending = new ArrayList<>();
+        doAnswer(invocation ->
+        {
+            requested.add(invocation.getArgument(0));
+            pending.add(invocation.getArgument(1));
+            return null;
+        }).when(manager).loadItem(anyString(), any(AudioLoadResultHandler.class));
+    }
+
+    @Test
+    void deliversInOrderWithBoundedConcurrency()
+    {
+        List<String> items = IntStream.range(0, 100).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        List<Integer> handled = new ArrayList<>();
+        AtomicInteger done = new AtomicInteger();
+        new OrderedLoader(manager, items, 4, index -> new Recorder(index, handled), done::incrementAndGet).start();
+
+        Random random = new Random(13);
+        while(!pending.isEmpty())
+        {
+            assertTrue(pending.size() <= 4);
+            AudioLoadResultHandler handler = pending.remove(random.nextInt(pending.size()));
+            if(random.nextBoolean())
+                handler.noMatches();
+            else
+                handler.loadFailed(new FriendlyException("failed", FriendlyException.Severity.COMMON, null));
+        }
+
+        assertEquals(items, requested);
+        assertEquals(IntStream.range(0, 100).boxed().collect(Collectors.toList()), handled);
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    void lastFinishingFirstStillCompletesOnce()
+    {
+        List<Integer> handled = new ArrayList<>();
+        AtomicInteger done = new AtomicInteger();
+        new OrderedLoader(manager, List.of("a", "b", "c"), 3, index -> new Recorder(index, handled), done::incrementAndGet).start();
+        List<AudioLoadResultHandler> handlers = new ArrayList<>(pending);
+        Collections.reverse(handlers);
+        for(AudioLoadResultHandler handler : handlers)
+        {
+            assertEquals(0, done.get());
+            handler.noMatches();
+        }
+        assertEquals(List.of(0, 1, 2), handled);
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    void allowHoldsItemsBack()
+    {
+        List<String> items = IntStream.range(0, 10).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        List<Integer> handled = new ArrayList<>();
+        AtomicInteger done = new AtomicInteger();
+        OrderedLoader loader = new OrderedLoader(manager, items, 4, index -> new Recorder(index, handled), done::incrementAndGet);
+        loader.allow(2);
+        loader.start();
+        assertEquals(2, requested.size());
+        pending.remove(0).noMatches();
+        pending.remove(0).noMatches();
+        assertEquals(2, requested.size());
+        assertEquals(2, loader.getDelivered());
+
+        loader.allow(loader.getDelivered() + 3);
+        assertEquals(5, requested.size());
+        loader.allow(items.size());
+        while(!pending.isEmpty())
+            pending.remove(0).noMatches();
+        assertEquals(items, requested);
+        assertEquals(10, handled.size());
+        assertTrue(loader.isFinished());
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    void throwingHandlerDoesNotStopTheRest()
+    {
+        List<Integer> handled = new ArrayList<>();
+        AtomicInteger done = new AtomicInteger();
+        new OrderedLoader(manager, List.of("a", "b", "c"), 3, index -> index == 1
+                ? new Throwing()
+                : new Recorder(index, handled), done::incrementAndGet).start();
+        pending.get(2).noMatches();
+        pending.get(1).noMatches();
+        pending.get(0).noMatches();
+        assertEquals(List.of(0, 2), handled);
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    void drainedRunsAfterEachRunOfResults()
+    {
+        List<Integer> handled = new ArrayList<>();
+        new OrderedLoader(manager, List.of("a", "b", "c"), 3, index -> new Recorder(index, handled),
+                () -> handled.add(-1), () -> handled.add(-2)).start();
+        pending.get(1).noMatches();
+        assertEquals(List.of(), handled);
+        pending.get(0).noMatches();
+        assertEquals(List.of(0, 1, -1), handled);
+        pending.get(2).noMatches();
+        assertEquals(List.of(0, 1, -1, 2, -1, -2), handled);
+    }
+
+    @Test
+    void emptyListCompletes()
+    {
+        AtomicInteger done = new AtomicInteger();
+        new OrderedLoader(manager, Collections.emptyList(), 4, index -> fail("nothing to handle"), done::incrementAndGet).start();
+        assertEquals(1, done.get());
+        verify(manager, never()).loadItem(anyString(), any(AudioLoadResultHandler.class));
+    }
+
+    private static class Throwing implements AudioLoadResultHandler
+    {
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            throw new IllegalStateException("trackLoaded");
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            throw new IllegalStateException("playlistLoaded");
+        }
+
+        @Override
+        public void noMatches()
+        {
+            throw new IllegalStateException("noMatches");
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            throw new IllegalStateException("loadFailed");
+        }
+    }
+
+    private static class Recorder implements AudioLoadResultHandler
+    {
+        private final int index;
+        private final List<Integer> handled;
+
+        private Recorder(int index, List<Integer> handled)
+        {
+            this.index = index;
+            this.handled = handled;
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            handled.add(index);
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            handled.add(index);
+        }
+
+        @Override
+        public void noMatches()
+        {
+            handled.add(index);
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            handled.add(index);
+        }
+    }
+}
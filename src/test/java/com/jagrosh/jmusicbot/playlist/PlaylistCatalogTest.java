@@ -0,0 +1,172 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import com.jagrosh.jmusicbot.playlist.PlaylistCatalog.PlaylistFile;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class PlaylistCatalogTest
+{
+    private Path folder;
+    private PlaylistCatalog catalog;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        folder = Files.createTempDirectory("playlists");
+        Files.write(folder.resolve("chill.txt"), "#shuffle\n\nfirst\n// a comment\n  second  \n".getBytes());
+        Files.write(folder.resolve("rock.txt"), "one".getBytes());
+        Files.write(folder.resolve("notes.md"), "ignored".getBytes());
+        catalog = new PlaylistCatalog(folder);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException
+    {
+        catalog.close();
+        for(Path path : Files.list(folder).toArray(Path[]::new))
+            Files.delete(path);
+        Files.delete(folder);
+    }
+
+    @Test
+    void parsesOncePerEdit()
+    {
+        assertEquals(List.of("chill", "rock"), catalog.getNames());
+        PlaylistFile chill = catalog.get("chill");
+        assertEquals(List.of("first", "second"), chill.getItems());
+        assertTrue(chill.isShuffle());
+        assertFalse(catalog.get("rock").isShuffle());
+        assertSame(chill, catalog.get("chill"));
+        assertNull(catalog.get("notes"));
+        assertNull(catalog.get("missing"));
+    }
+
+    @Test
+    void noticesChangesMadeOutside() throws Exception
+    {
+        PlaylistFile rock = catalog.get("rock");
+        Files.write(folder.resolve("rock.txt"), "one\ntwo".getBytes());
+        Files.write(folder.resolve("jazz.txt"), "three".getBytes());
+        Files.delete(folder.resolve("chill.txt"));
+        waitFor(() -> catalog.get("rock") != rock && catalog.get("rock").getItems().size() == 2);
+        waitFor(() -> catalog.getNames().equals(List.of("jazz", "rock")));
+        assertEquals(List.of("three"), catalog.get("jazz").getItems());
+        assertNull(catalog.get("chill"));
+    }
+
+    @Test
+    void ownChangesApplyAtOnce() throws IOException
+    {
+        PlaylistFile rock = catalog.get("rock");
+        Files.write(folder.resolve("rock.txt"), "one\ntwo".getBytes());
+        catalog.changed("rock");
+        assertNotSame(rock, catalog.get("rock"));
+        assertEquals(List.of("one", "two"), catalog.get("rock").getItems());
+        Files.delete(folder.resolve("rock.txt"));
+        catalog.removed("rock");
+        assertEquals(List.of("chill"), catalog.getNames());
+    }
+
+    @Test
+    void appendKeepsWhatIsThere() throws IOException
+    {
+        catalog.append("chill", List.of("third", "fourth"));
+        List<String> lines = Files.readAllLines(folder.resolve("chill.txt"));
+        assertEquals(List.of("#shuffle", "", "first", "// a comment", "  second  ", "third", "fourth"), lines);
+        catalog.append("rock", List.of("two"));
+        assertEquals(List.of("one", "two"), catalog.get("rock").getItems());
+        assertTrue(catalog.get("chill").isShuffle());
+    }
+
+    @Test
+    void concurrentAppendsLoseNothing() throws Exception
+    {
+        int threads = 8, each = 50;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> running = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for(int t = 0; t < threads; t++)
+        {
+            int id = t;
+            Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                    for(int i = 0; i < each; i++)
+                        catalog.append("rock", List.of("t" + id + "-" + i));
+                }
+                catch(Exception ex)
+                {
+                    synchronized(failures)
+                    {
+                        failures.add(ex);
+                    }
+                }
+            });
+            running.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for(Thread thread : running)
+            thread.join();
+        assertTrue(failures.isEmpty());
+        List<String> items = catalog.get("rock").getItems();
+        assertEquals(1 + threads * each, items.size());
+        assertEquals(1 + threads * each, items.stream().distinct().count());
+    }
+
+    @Test
+    void writeReplacesWholeFile() throws IOException
+    {
+        PlaylistFile chill = catalog.get("chill");
+        catalog.write("chill", "fresh\r\nstart");
+        assertNotSame(chill, catalog.get("chill"));
+        assertEquals(List.of("fresh", "start"), catalog.get("chill").getItems());
+        assertFalse(Files.exists(folder.resolve("chill.txt.tmp")));
+        catalog.create("jazz");
+        assertTrue(catalog.contains("jazz"));
+        catalog.delete("jazz");
+        assertFalse(catalog.contains("jazz"));
+    }
+
+    // some platforms only poll for changes every few seconds
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + 30000;
+        while(!condition.getAsBoolean())
+        {
+            assertTrue(System.currentTimeMillis() < end, "timed out waiting for the catalog to notice");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import com.jagrosh.jmusicbot.TaskGroup;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class SettingsFlusherTest
+{
+    private ScheduledThreadPoolExecutor executor;
+    private Map<Long, Integer> volumes;
+    private MemoryStore store;
+
+    @BeforeEach
+    void setUp()
+    {
+        executor = new ScheduledThreadPoolExecutor(1);
+        volumes = new ConcurrentHashMap<>();
+        store = new MemoryStore();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void burstIsSavedOncePerGuild() throws IOException
+    {
+        SettingsFlusher flusher = create(3600000);
+        for(int i = 0; i < 100; i++)
+        {
+            long guild = i % 2;
+            volumes.put(guild, i);
+            flusher.changed(guild);
+        }
+        assertEquals(1, executor.getQueue().size());
+        assertTrue(store.saved.isEmpty());
+
+        flusher.flush();
+        flusher.flush();
+        assertEquals(2, store.saved.size());
+        assertEquals(1, store.flushes);
+        assertEquals(98, store.settings.get(0L).getInt("volume"));
+        assertEquals(99, store.settings.get(1L).getInt("volume"));
+        assertFalse(flusher.isDirty());
+    }
+
+    @Test
+    void savesAfterTheDelay() throws Exception
+    {
+        SettingsFlusher flusher = create(10);
+        volumes.put(1L, 50);
+        flusher.changed(1);
+        waitForVolume(flusher, 1, 50);
+
+        // a change after the flush schedules another one
+        volumes.put(1L, 60);
+        flusher.changed(1);
+        waitForVolume(flusher, 1, 60);
+    }
+
+    @Test
+    void failedSaveIsTriedAgain() throws IOException
+    {
+        SettingsFlusher flusher = create(3600000);
+        volumes.put(1L, 50);
+        volumes.put(2L, 60);
+        flusher.changed(1);
+        flusher.changed(2);
+        store.failing = true;
+        assertThrows(IOException.class, flusher::flush);
+        assertTrue(flusher.isDirty());
+
+        store.failing = false;
+        flusher.flush();
+        assertEquals(50, store.settings.get(1L).getInt("volume"));
+        assertEquals(60, store.settings.get(2L).getInt("volume"));
+        assertFalse(flusher.isDirty());
+    }
+
+    @Test
+    void closedFlusherOnlyFlushesWhenAsked() throws IOException
+    {
+        SettingsFlusher flusher = create(3600000);
+        flusher.close();
+        volumes.put(1L, 50);
+        flusher.changed(1);
+        assertEquals(0, executor.getQueue().size());
+        flusher.flush();
+        assertEquals(50, store.settings.get(1L).getInt("volume"));
+    }
+
+    private SettingsFlusher create(long delay)
+    {
+        return new SettingsFlusher(store, id -> new JSONObject().put("volume", volumes.get(id)),
+                new TaskGroup("settings", executor, executor), delay);
+    }
+
+    private void waitForVolume(SettingsFlusher flusher, long guild, int volume) throws Exception
+    {
+        long end = System.currentTimeMillis() + 10000;
+        while(flusher.isDirty() || !store.settings.containsKey(guild) || store.settings.get(guild).getInt("volume") != volume)
+        {
+            assertTrue(System.currentTimeMillis() < end, "timed out waiting for the flush");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class MemoryStore implements SettingsStore
+    {
+        private final Map<Long, JSONObject> settings = new ConcurrentHashMap<>();
+        private final List<Long> saved = new ArrayList<>();
+        private volatile boolean failing = false;
+        private int flushes = 0;
+
+        @Override
+        public JSONObject load(long guildId)
+        {
+            return settings.get(guildId);
+        }
+
+        @Override
+        public void save(long guildId, JSONObject o) throws IOException
+        {
+            if(failing)
+                throw new IOException("disk full");
+            saved.add(guildId);
+            settings.put(guildId, o);
+        }
+
+        @Override
+        public void flush()
+        {
+            flushes++;
+        }
+
+        @Override
+        public int size()
+        {
+            return settings.size();
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 John Grosh <john.a.grosh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+class SettingsLogTest
+{
+    private Path dir, file;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory("settings");
+        file = dir.resolve("serversettings.log");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException
+    {
+        for(Path path : Files.list(dir).toArray(Path[]::new))
+            Files.delete(path);
+        Files.delete(dir);
+    }
+
+    @Test
+    void survivesReopen() throws IOException
+    {
+        try(SettingsLog log = new SettingsLog(file))
+        {
+            log.save(1, volume(50));
+            log.save(2, volume(60));
+            log.save(1, volume(70));
+            log.save(2, new JSONObject());
+            log.flush();
+        }
+        try(SettingsLog log = new SettingsLog(file))
+        {
+            assertEquals(1, log.size());
+            assertEquals(70, log.load(1).getInt("volume"));
+            assertNull(log.load(2));
+            assertNull(log.load(3));
+        }
+    }
+
+    @Test
+    void crashWhileAppendingKeepsEarlierChanges() throws IOException
+    {
+        try(SettingsLog log = new SettingsLog(file))
+        {
+            log.save(1, volume(50));
+            log.save(2, volume(60));
+            log.flush();
+        }
+        // the process died halfway through writing the second record
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            channel.truncate(channel.size() - 5);
+        }
+        try(SettingsLog log = new SettingsLog(file))
+        {
+            assertEquals(50, log.load(1).getInt("volume"));
+            assertNull(log.load(2));
+            log.save(2, volume(80));
+            log.flush();
+        }
+        try(SettingsLog log = new SettingsLog(file))
+        {
+            assertEquals(2, log.size());
+            assertEquals(80, log.load(2).getInt("volume"));
+        }
+    }
+
+    @Test
+    void rewritesWhenMostlyDead() throws IOException
+    {
+        try(SettingsLog log = new SettingsLog(file))
+        {
+            for(int i = 0; i < 5000; i++)
+                log.save(i % 3, volume(i));
+            log.flush();
+            assertTrue(Files.size(file) < 128 * 1024);
+            assertEquals(4998, log.load(0).getInt("volume"));
+            assertEquals(4999, log.load(1).getInt("volume"));
+        }
+        try(SettingsLog log = new SettingsLog(file))
+        {
+            assertEquals(3, log.size());
+            assertEquals(4997, log.load(2).getInt("volume"));
+        }
+    }
+
+    @Test
+    void importsLegacyFile() throws IOException
+    {
+        Path json = dir.resolve("serversettings.json");
+        Files.write(json, ("{\"1\": {\"volume\": 40, \"repeat\": true},"
+                + " \"2\": {\"repeat\": false, \"prefix\": \"!\"},"
+                + " \"3\": {}}").getBytes());
+        SettingsLog.importJson(json, file);
+        try(SettingsLog log = new SettingsLog(file))
+        {
+            assertEquals(2, log.size());
+            JSONObject first = log.load(1);
+            assertEquals(40, first.getInt("volume"));
+            assertEquals(RepeatMode.ALL, first.getEnum(RepeatMode.class, "repeat_mode"));
+            assertFalse(first.has("repeat"));
+            JSONObject second = log.load(2);
+            assertEquals("!", second.getString("prefix"));
+            assertFalse(second.has("repeat_mode"));
+            assertNull(log.load(3));
+        }
+    }
+
+    @Test
+    void brokenLegacyFileLeavesNoLog() throws IOException
+    {
+        Path json = dir.resolve("serversettings.json");
+        Files.write(json, "{\"1\": {\"volume\": ".getBytes());
+        assertThrows(RuntimeException.class, () -> SettingsLog.importJson(json, file));
+        assertFalse(Files.exists(file));
+    }
+
+    private static JSONObject volume(int volume)
+    {
+        return new JSONObject().put("volume", volume);
+    }
+}